@@ -0,0 +1,55 @@
+package com.gustavo.finansync.service;
+
+import com.gustavo.finansync.config.FormatosExtratoConfig;
+import com.gustavo.finansync.repository.MonthlySummaryRepository;
+import com.gustavo.finansync.repository.TransactionBatchRepository;
+import com.gustavo.finansync.repository.TransactionCounterRepository;
+import com.gustavo.finansync.repository.TransactionRepository;
+import com.gustavo.finansync.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Serviços montados sem Spring e sem banco, com os repositórios substituídos por stubs.
+ */
+final class BenchmarkServices {
+
+    private static final int TAMANHO_LOTE = 1000;
+
+    private BenchmarkServices() {}
+
+    static TransactionService transactionService() {
+        TransactionRepository transactionRepository = mock(TransactionRepository.class);
+        UserRepository userRepository = mock(UserRepository.class);
+        TransactionBatchRepository batchRepository = mock(TransactionBatchRepository.class);
+        // Simula a inserção de todas as linhas do lote
+        when(batchRepository.insertAll(anyList(), anyInt())).thenAnswer(inv -> inv.<List<?>>getArgument(0).size());
+
+        MonthlySummaryService monthlySummaryService = new MonthlySummaryService(
+                mock(MonthlySummaryRepository.class), transactionRepository, userRepository);
+        TransactionCounterService transactionCounterService = new TransactionCounterService(
+                mock(TransactionCounterRepository.class), userRepository);
+        return new TransactionService(transactionRepository, userRepository, batchRepository,
+                monthlySummaryService, transactionCounterService,
+                Validation.buildDefaultValidatorFactory().getValidator(), TAMANHO_LOTE, TAMANHO_LOTE);
+    }
+
+    /**
+     * @param parallelism Workers do parse paralelo (0 = um por núcleo)
+     */
+    static CsvParsingService csvParsingService(int parallelism) {
+        return new CsvParsingService(new SimpleMeterRegistry(), formatos(), parallelism);
+    }
+
+    static FormatoExtratoRegistry formatos() {
+        FormatosExtratoConfig config = new FormatosExtratoConfig();
+        return new FormatoExtratoRegistry(List.of(config.extratoContaCorrente(), config.nubankConta(), config.nubankCartao()));
+    }
+}
@@ -0,0 +1,74 @@
+package com.gustavo.finansync.service;
+
+import com.gustavo.finansync.dto.TransactionDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vazão do parse de extratos CSV. Com -prof gc, gc.alloc.rate.norm dividido por rows
+ * dá a alocação por linha.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsvParsingBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int rows;
+
+    private final CsvParsingService csvParsingService = BenchmarkServices.csvParsingService(0);
+    private byte[] csv;
+    private Path arquivo;
+
+    @Setup
+    public void setup() throws IOException {
+        csv = StatementGenerator.csv(rows);
+        arquivo = Files.createTempFile("finansync-bench-", ".csv");
+        Files.write(arquivo, csv);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(arquivo);
+        csvParsingService.shutdown();
+    }
+
+    /** Caminho usado pela análise: linhas consumidas uma a uma. */
+    @Benchmark
+    public long streamCsv(Blackhole blackhole) {
+        return csvParsingService.parseCsv(new ByteArrayInputStream(csv), blackhole::consume);
+    }
+
+    /** Caminho do upload direto: arquivo mapeado em memória e blocos convertidos em paralelo. */
+    @Benchmark
+    public long parseArquivoParalelo(Blackhole blackhole) throws IOException {
+        return csvParsingService.parseArquivo(arquivo, blackhole::consume);
+    }
+
+    /** Extrato inteiro materializado em lista. */
+    @Benchmark
+    public List<TransactionDTO> parseCsvToList() throws Exception {
+        return csvParsingService.parseCsv(new ByteArrayInputStream(csv));
+    }
+}
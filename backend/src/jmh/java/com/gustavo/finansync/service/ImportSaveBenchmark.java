@@ -0,0 +1,52 @@
+package com.gustavo.finansync.service;
+
+import com.gustavo.finansync.dto.TransactionDTO;
+import com.gustavo.finansync.entity.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Laço de gravação da importação (TransactionService.saveImportedTransactions) sem o banco:
+ * mapeamento DTO -> entidade, fingerprint, filtro de duplicadas e agregação do resumo mensal.
+ * Os repositórios são stubs, então o resultado mede apenas o custo da aplicação por linha.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImportSaveBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int rows;
+
+    private TransactionService transactionService;
+    private List<TransactionDTO> dtos;
+    private User user;
+
+    @Setup
+    public void setup() {
+        transactionService = BenchmarkServices.transactionService();
+        user = new User("Benchmark", "benchmark@finansync.com", "x");
+        user.setId(1L);
+        dtos = StatementGenerator.dtos(rows);
+    }
+
+    @Benchmark
+    public long saveImportedTransactions() {
+        return transactionService.saveImportedTransactions(dtos.iterator(), user);
+    }
+}
@@ -0,0 +1,68 @@
+package com.gustavo.finansync.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversão de uma linha do extrato: caminho tradicional (split, replace, DateTimeFormatter)
+ * contra o {@link LinhaExtratoDecoder}. Cada operação é uma linha; com -prof gc,
+ * gc.alloc.rate.norm mostra os bytes alocados por linha em cada caminho.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LinhaExtratoBenchmark {
+
+    private static final int LINHAS = 1000;
+
+    private final CsvParsingService csvParsingService = BenchmarkServices.csvParsingService(1);
+    private LayoutExtrato layout;
+    private String[] linhas;
+
+    @Setup
+    public void setup() {
+        byte[] csv = StatementGenerator.csv(LINHAS);
+        layout = BenchmarkServices.formatos().detectar(csv, csv.length, true);
+        String[] todas = new String(csv, StandardCharsets.UTF_8).split("\n");
+        linhas = Arrays.copyOfRange(todas, layout.linhasAntesDosDados(), todas.length);
+    }
+
+    @TearDown
+    public void tearDown() {
+        csvParsingService.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINHAS)
+    public void padrao(Blackhole blackhole) {
+        for (String linha : linhas) {
+            blackhole.consume(csvParsingService.parseLinhaPadrao(layout, linha));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINHAS)
+    public void decoder(Blackhole blackhole) {
+        for (String linha : linhas) {
+            blackhole.consume(csvParsingService.parseLinha(layout, linha));
+        }
+    }
+}
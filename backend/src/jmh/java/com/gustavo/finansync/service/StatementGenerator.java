@@ -0,0 +1,95 @@
+package com.gustavo.finansync.service;
+
+import com.gustavo.finansync.dto.TransactionDTO;
+import com.gustavo.finansync.entity.Transaction;
+import com.gustavo.finansync.entity.TransactionType;
+import com.gustavo.finansync.entity.User;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.io.UncheckedIOException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Gera extratos sintéticos no layout lido pelo {@link CsvParsingService}
+ * (6 linhas de cabeçalho; data;histórico;descrição;valor;saldo).
+ * A semente é fixa, então cada tamanho gera sempre o mesmo conteúdo.
+ */
+final class StatementGenerator {
+
+    private static final DateTimeFormatter FORMATO_DATA = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final String[] HISTORICOS = {"Compra com Cartão", "Pix Enviado", "Pix Recebido", "Pagamento de Boleto", "TED Recebida"};
+    private static final String[] DESCRICOES = {"MERCADO LIVRE", "SUPERMERCADO PAO DE ACUCAR", "POSTO IPIRANGA",
+            "FARMACIA DROGASIL", "UBER *TRIP", "NETFLIX.COM", "JOAO DA SILVA", "CONDOMINIO EDIFICIO SOL"};
+    private static final LocalDate INICIO = LocalDate.of(2024, 1, 1);
+
+    private StatementGenerator() {}
+
+    static byte[] csv(int linhas) {
+        Random random = new Random(42);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(linhas * 64 + 256);
+        try (Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+            writer.write("Extrato Conta Corrente\nAgência;0001\nConta;12345-6\nPeríodo;01/01/2024 a 31/12/2024\n\n");
+            writer.write("Data Lançamento;Histórico;Descrição;Valor;Saldo\n");
+            for (int i = 0; i < linhas; i++) {
+                writer.write(INICIO.plusDays(i % 365).format(FORMATO_DATA));
+                writer.write(';');
+                writer.write(HISTORICOS[random.nextInt(HISTORICOS.length)]);
+                writer.write(';');
+                writer.write(DESCRICOES[random.nextInt(DESCRICOES.length)]);
+                writer.write(';');
+                writer.write(valor(random));
+                writer.write(";1.000,00\n");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    static List<TransactionDTO> dtos(int linhas) {
+        Random random = new Random(42);
+        List<TransactionDTO> dtos = new ArrayList<>(linhas);
+        for (int i = 0; i < linhas; i++) {
+            BigDecimal amount = BigDecimal.valueOf(random.nextInt(2_000_000) - 1_000_000, 2);
+            dtos.add(new TransactionDTO(null,
+                    HISTORICOS[random.nextInt(HISTORICOS.length)] + " - " + DESCRICOES[random.nextInt(DESCRICOES.length)],
+                    null, amount, INICIO.plusDays(i % 365),
+                    amount.signum() >= 0 ? TransactionType.RECEITA : TransactionType.DESPESA,
+                    "msg-" + (i / 100)));
+        }
+        return dtos;
+    }
+
+    static List<Transaction> transactions(int linhas, User user) {
+        List<Transaction> transactions = new ArrayList<>(linhas);
+        long id = 1;
+        for (TransactionDTO dto : dtos(linhas)) {
+            Transaction t = new Transaction();
+            t.setId(id++);
+            t.setDescription(dto.description());
+            t.setAmount(dto.amount());
+            t.setTransactionDate(dto.transactionDate());
+            t.setType(dto.type());
+            t.setEmailMessageId(dto.emailMessageId());
+            t.setUser(user);
+            transactions.add(t);
+        }
+        return transactions;
+    }
+
+    // Valor no formato brasileiro, ex: -1.234,56
+    private static String valor(Random random) {
+        long centavos = random.nextInt(2_000_000) - 1_000_000;
+        String inteiro = String.format("%,d", Math.abs(centavos) / 100).replace(',', '.');
+        return (centavos < 0 ? "-" : "") + inteiro + "," + String.format("%02d", Math.abs(centavos) % 100);
+    }
+}
@@ -0,0 +1,52 @@
+package com.gustavo.finansync.service;
+
+import com.gustavo.finansync.entity.Transaction;
+import com.gustavo.finansync.entity.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversão de entidades para TransactionDTO (TransactionService.toDTO), usada por todas as listagens.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransactionMappingBenchmark {
+
+    @Param({"1000", "100000"})
+    private int rows;
+
+    private TransactionService transactionService;
+    private List<Transaction> transactions;
+
+    @Setup
+    public void setup() {
+        transactionService = BenchmarkServices.transactionService();
+        User user = new User("Benchmark", "benchmark@finansync.com", "x");
+        user.setId(1L);
+        transactions = StatementGenerator.transactions(rows, user);
+    }
+
+    @Benchmark
+    public void toDTO(Blackhole blackhole) {
+        for (Transaction transaction : transactions) {
+            blackhole.consume(transactionService.toDTO(transaction));
+        }
+    }
+}
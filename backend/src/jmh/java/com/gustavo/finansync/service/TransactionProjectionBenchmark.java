@@ -0,0 +1,130 @@
+package com.gustavo.finansync.service;
+
+import com.gustavo.finansync.dto.TransactionDTO;
+import com.gustavo.finansync.entity.Transaction;
+import com.gustavo.finansync.entity.TransactionSource;
+import com.gustavo.finansync.entity.User;
+import com.gustavo.finansync.repository.TransactionRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Leitura de uma página de transações pelo Hibernate, num H2 em memória: entidades gerenciadas
+ * convertidas por TransactionService.toDTO (como as listagens faziam) contra a projeção
+ * SELECT new TransactionDTO(...) usada pelo TransactionRepository.
+ * Cada operação é uma linha; com -prof gc, gc.alloc.rate.norm mostra os bytes alocados por linha
+ * (snapshot do dirty checking, EntityEntry, proxy do usuário e a própria entidade).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransactionProjectionBenchmark {
+
+    private static final int LINHAS = 1000;
+
+    private static final String FILTRO = "FROM Transaction t WHERE t.user = :user ORDER BY t.transactionDate DESC, t.id DESC";
+
+    private final TransactionService transactionService = BenchmarkServices.transactionService();
+    private LocalContainerEntityManagerFactoryBean factoryBean;
+    private EntityManagerFactory entityManagerFactory;
+    private User user;
+
+    @Setup
+    public void setup() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:projecao;DB_CLOSE_DELAY=-1", "sa", "");
+        factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setPackagesToScan("com.gustavo.finansync.entity");
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setJpaPropertyMap(Map.of(
+                "hibernate.hbm2ddl.auto", "create-drop",
+                "jakarta.persistence.validation.mode", "none"));
+        factoryBean.afterPropertiesSet();
+        entityManagerFactory = factoryBean.getObject();
+
+        LocalDateTime agora = LocalDateTime.now();
+        EntityManager em = entityManagerFactory.createEntityManager();
+        em.getTransaction().begin();
+        user = new User("Benchmark", "benchmark@finansync.com", "x");
+        user.setCreatedAt(agora);
+        em.persist(user);
+        for (TransactionDTO dto : StatementGenerator.dtos(LINHAS)) {
+            Transaction t = new Transaction();
+            t.setDescription(dto.description());
+            t.setAmount(dto.amount());
+            t.setTransactionDate(dto.transactionDate());
+            t.setType(dto.type());
+            t.setSource(TransactionSource.EMAIL_IMPORT);
+            t.setEmailMessageId(dto.emailMessageId());
+            t.setCreatedAt(agora);
+            t.setUser(user);
+            em.persist(t);
+        }
+        em.getTransaction().commit();
+        em.close();
+    }
+
+    @TearDown
+    public void tearDown() {
+        factoryBean.destroy();
+    }
+
+    private <T> List<T> ler(Function<EntityManager, List<T>> consulta) {
+        EntityManager em = entityManagerFactory.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            List<T> rows = consulta.apply(em);
+            // O commit faz o flush, que percorre as entidades gerenciadas no dirty checking
+            em.getTransaction().commit();
+            return rows;
+        } finally {
+            em.close();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINHAS)
+    public void entidades(Blackhole blackhole) {
+        blackhole.consume(ler(em -> em.createQuery("SELECT t " + FILTRO, Transaction.class)
+                .setParameter("user", user)
+                .getResultList()
+                .stream()
+                .map(transactionService::toDTO)
+                .toList()));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINHAS)
+    public void projecao(Blackhole blackhole) {
+        blackhole.consume(ler(em -> em.createQuery(TransactionRepository.SELECT_DTO
+                        + "WHERE t.user = :user ORDER BY t.transactionDate DESC, t.id DESC", TransactionDTO.class)
+                .setParameter("user", user)
+                .getResultList()));
+    }
+}
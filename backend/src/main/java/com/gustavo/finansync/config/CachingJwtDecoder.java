@@ -0,0 +1,84 @@
+package com.gustavo.finansync.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+
+/**
+ * JwtDecoder que guarda os tokens já verificados até a expiração de cada um.
+ * O front-end reenvia o mesmo token em toda requisição; com o cache, o parse e a verificação
+ * da assinatura HMAC acontecem uma vez por token e as demais requisições pagam só um SHA-256.
+ * A chave é o hash do token, para que o cache não mantenha tokens em memória.
+ * Tokens inválidos ou sem expiração não são guardados e sempre passam pelo decoder delegado.
+ */
+public class CachingJwtDecoder implements JwtDecoder {
+
+    private final JwtDecoder delegate;
+    private final Cache<String, Jwt> cache;
+
+    public CachingJwtDecoder(JwtDecoder delegate, long maxSize, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new AteExpiracao())
+                .recordStats()
+                .build();
+        // cache.gets{result=hit|miss}, cache.evictions, cache.size com a tag cache=jwt
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwt");
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        String chave = hash(token);
+        Jwt jwt = cache.getIfPresent(chave);
+        if (jwt != null) {
+            return jwt;
+        }
+        jwt = delegate.decode(token);
+        if (jwt.getExpiresAt() != null) {
+            cache.put(chave, jwt);
+        }
+        return jwt;
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível", e);
+        }
+    }
+
+    // Cada entrada vive até o claim exp do próprio token
+    private static final class AteExpiracao implements Expiry<String, Jwt> {
+
+        @Override
+        public long expireAfterCreate(String chave, Jwt jwt, long currentTime) {
+            Duration restante = Duration.between(Instant.now(), jwt.getExpiresAt());
+            return restante.isNegative() ? 0 : restante.toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String chave, Jwt jwt, long currentTime, long currentDuration) {
+            return expireAfterCreate(chave, jwt, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String chave, Jwt jwt, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
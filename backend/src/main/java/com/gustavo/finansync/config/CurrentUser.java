@@ -0,0 +1,18 @@
+package com.gustavo.finansync.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Injeta no parâmetro do controller o {@link com.gustavo.finansync.entity.User} autenticado.
+ * O usuário é uma referência montada a partir do id presente no JWT: nenhuma consulta é feita
+ * até que um campo além do id seja lido.
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface CurrentUser {
+}
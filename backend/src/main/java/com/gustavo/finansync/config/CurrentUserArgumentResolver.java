@@ -0,0 +1,51 @@
+package com.gustavo.finansync.config;
+
+import com.gustavo.finansync.entity.User;
+import com.gustavo.finansync.service.UserService;
+import org.springframework.core.MethodParameter;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+/**
+ * Resolve os parâmetros anotados com {@link CurrentUser}.
+ * Lê o claim userId do JWT emitido pelo {@link com.gustavo.finansync.service.JwtTokenService};
+ * tokens sem o claim caem na busca pelo e-mail (subject), que também passa pelo cache do UserService.
+ */
+@Component
+public class CurrentUserArgumentResolver implements HandlerMethodArgumentResolver {
+
+    private static final String CLAIM_USER_ID = "userId";
+
+    private final UserService userService;
+
+    public CurrentUserArgumentResolver(UserService userService) {
+        this.userService = userService;
+    }
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return parameter.hasParameterAnnotation(CurrentUser.class)
+                && User.class.isAssignableFrom(parameter.getParameterType());
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()) {
+            throw new IllegalStateException("Nenhum usuário autenticado na requisição.");
+        }
+
+        if (authentication instanceof JwtAuthenticationToken jwt
+                && jwt.getToken().getClaim(CLAIM_USER_ID) instanceof Number userId) {
+            return userService.getReference(userId.longValue());
+        }
+        return userService.getReferenceByEmail(authentication.getName());
+    }
+}
@@ -0,0 +1,54 @@
+package com.gustavo.finansync.config;
+
+import com.gustavo.finansync.service.FormatoExtrato;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+
+import java.util.List;
+
+/**
+ * Formatos de extrato reconhecidos na importação. Para aceitar o arquivo de outro banco,
+ * basta declarar mais um {@link FormatoExtrato}; a ordem só desempata arquivos que
+ * correspondem a mais de um formato.
+ */
+@Configuration
+public class FormatosExtratoConfig {
+
+    /**
+     * Extrato de conta corrente recebido por e-mail: 5 linhas de metadados, cabeçalho
+     * "Data Lançamento;Histórico;Descrição;Valor;Saldo" e valores como 1.234,56.
+     */
+    @Bean
+    @Order(0)
+    public FormatoExtrato extratoContaCorrente() {
+        return new FormatoExtrato("conta-corrente", ';',
+                List.of("data", "historico", "descricao", "valor", "saldo"),
+                "data", "dd/MM/yyyy", List.of("historico", "descricao"), "valor",
+                ',', false, 6);
+    }
+
+    /**
+     * Extrato da conta Nubank: "Data,Valor,Identificador,Descrição", valores como -12.34.
+     */
+    @Bean
+    @Order(1)
+    public FormatoExtrato nubankConta() {
+        return new FormatoExtrato("nubank-conta", ',',
+                List.of("data", "valor", "identificador", "descricao"),
+                "data", "dd/MM/yyyy", List.of("descricao"), "valor",
+                '.', false, -1);
+    }
+
+    /**
+     * Fatura do cartão Nubank: "date,title,amount", datas ISO e compras com valor positivo.
+     */
+    @Bean
+    @Order(2)
+    public FormatoExtrato nubankCartao() {
+        return new FormatoExtrato("nubank-cartao", ',',
+                List.of("date", "title", "amount"),
+                "date", "yyyy-MM-dd", List.of("title"), "amount",
+                '.', true, -1);
+    }
+}
@@ -0,0 +1,34 @@
+package com.gustavo.finansync.config;
+
+import com.gustavo.finansync.service.MonthlySummaryService;
+import com.gustavo.finansync.service.TransactionCounterService;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reconstrói os resumos mensais e os contadores de transações de todos os usuários na inicialização.
+ * As migrações V4 e V7 já preenchem as tabelas com as transações existentes; este runner serve
+ * para recalculá-las caso fiquem inconsistentes (ex: alterações feitas direto no banco):
+ * ./mvnw spring-boot:run -Dspring-boot.run.arguments=--finansync.rollup.rebuild-on-startup=true
+ */
+@Component
+@ConditionalOnProperty(name = "finansync.rollup.rebuild-on-startup", havingValue = "true")
+public class MonthlySummaryBackfillRunner implements ApplicationRunner {
+
+    private final MonthlySummaryService monthlySummaryService;
+    private final TransactionCounterService transactionCounterService;
+
+    public MonthlySummaryBackfillRunner(MonthlySummaryService monthlySummaryService,
+                                        TransactionCounterService transactionCounterService) {
+        this.monthlySummaryService = monthlySummaryService;
+        this.transactionCounterService = transactionCounterService;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        monthlySummaryService.reconstruirTodos();
+        transactionCounterService.reconstruirTodos();
+    }
+}
@@ -0,0 +1,23 @@
+package com.gustavo.finansync.config;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * Registra no Hibernate a função match_against(coluna, busca), que gera
+ * MATCH(coluna) AGAINST(busca IN BOOLEAN MODE) do MySQL e retorna a relevância.
+ * Permite usar o índice FULLTEXT nas consultas JPQL e Specifications.
+ * Registrado via META-INF/services/org.hibernate.boot.model.FunctionContributor.
+ */
+public class MySqlFullTextFunctionContributor implements FunctionContributor {
+
+    @Override
+    public void contributeFunctions(FunctionContributions functionContributions) {
+        functionContributions.getFunctionRegistry().registerPattern(
+                "match_against",
+                "match(?1) against(?2 in boolean mode)",
+                functionContributions.getTypeConfiguration().getBasicTypeRegistry()
+                        .resolve(StandardBasicTypes.DOUBLE));
+    }
+}
@@ -0,0 +1,68 @@
+package com.gustavo.finansync.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Envia as conexões de transações somente leitura para a réplica e as demais para o primário.
+ * Deve ficar atrás de um LazyConnectionDataSourceProxy: a conexão real só é pedida no primeiro
+ * comando SQL, quando a transação já marcou se é readOnly.
+ * Com a réplica indisponível ou atrasada (segundo o {@link ReplicaMonitor}), ou se a conexão com
+ * ela falhar, a leitura vai para o primário.
+ */
+public class ReadWriteRoutingDataSource extends AbstractDataSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final ReplicaMonitor replicaMonitor;
+    private final Counter conexoesPrimario;
+    private final Counter conexoesReplica;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, ReplicaMonitor replicaMonitor,
+                                      MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replica = replica;
+        this.replicaMonitor = replicaMonitor;
+        this.conexoesPrimario = contador(meterRegistry, "primary");
+        this.conexoesReplica = contador(meterRegistry, "replica");
+    }
+
+    private static Counter contador(MeterRegistry meterRegistry, String destino) {
+        return Counter.builder("finansync.datasource.connections")
+                .description("Conexões entregues pelo roteamento de leitura/escrita, por destino")
+                .tag("target", destino)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly() && replicaMonitor.isDisponivel()) {
+            try {
+                Connection connection = replica.getConnection();
+                conexoesReplica.increment();
+                return connection;
+            } catch (SQLException e) {
+                logger.warn("Réplica indisponível, leitura enviada ao primário: {}", e.getMessage());
+                replicaMonitor.registrarFalha(e);
+            }
+        }
+        conexoesPrimario.increment();
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        conexoesPrimario.increment();
+        return primary.getConnection(username, password);
+    }
+}
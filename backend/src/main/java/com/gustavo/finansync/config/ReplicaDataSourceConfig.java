@@ -0,0 +1,82 @@
+package com.gustavo.finansync.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Réplica de leitura (finansync.datasource.replica.enabled=true).
+ * O pool do primário continua configurado por spring.datasource.*; o da réplica por
+ * finansync.datasource.replica.* (propriedades do Hikari: jdbc-url, username, password,
+ * maximum-pool-size...). Transações @Transactional(readOnly = true), incluindo as consultas
+ * dos repositórios Spring Data fora de outra transação, usam a réplica; o restante, o Flyway
+ * e as escritas usam o primário.
+ * O roteamento é decidido a cada transação: o EntityManager da requisição (open-in-view) devolve a
+ * conexão ao fim de cada uma, em vez de segurá-la até o fim da requisição.
+ */
+@Configuration
+@ConditionalOnProperty(name = "finansync.datasource.replica.enabled", havingValue = "true")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("finansync.datasource.replica")
+    public HikariDataSource replicaDataSource() {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("replica");
+        // Uma escrita roteada por engano falha em vez de alterar a réplica
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaMonitor replicaHealthIndicator(
+            @Qualifier("replicaDataSource") DataSource replicaDataSource,
+            @Value("${finansync.datasource.replica.max-lag:10s}") Duration atrasoMaximo,
+            @Value("${finansync.datasource.replica.check-interval:5s}") Duration intervalo,
+            @Value("${finansync.datasource.replica.check-replication:true}") boolean verificarReplicacao,
+            MeterRegistry meterRegistry) {
+        return new ReplicaMonitor(replicaDataSource, atrasoMaximo, intervalo, verificarReplicacao, meterRegistry);
+    }
+
+    /**
+     * O Spring configura o Hibernate com DELAYED_ACQUISITION_AND_HOLD: com open-in-view, a conexão
+     * obtida numa transação readOnly ficaria com o EntityManager até o fim da requisição e uma escrita
+     * seguinte iria para a réplica. Liberando a conexão ao fim da transação, cada uma é roteada de novo.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer liberarConexaoAoFimDaTransacao() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                 ReplicaMonitor replicaMonitor, MeterRegistry meterRegistry) {
+        return new LazyConnectionDataSourceProxy(
+                new ReadWriteRoutingDataSource(primaryDataSource, replicaDataSource, replicaMonitor, meterRegistry));
+    }
+}
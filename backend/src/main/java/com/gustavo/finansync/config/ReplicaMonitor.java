@@ -0,0 +1,138 @@
+package com.gustavo.finansync.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verifica periodicamente se a réplica de leitura responde e se o atraso da replicação
+ * está dentro do limite. Enquanto não estiver, o {@link ReadWriteRoutingDataSource} envia
+ * as leituras ao primário. Aparece em /actuator/health como "replica" e nas métricas
+ * finansync.datasource.replica.*; a indisponibilidade da réplica não derruba a aplicação.
+ */
+public class ReplicaMonitor implements HealthIndicator {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaMonitor.class);
+
+    private final DataSource replica;
+    private final Duration atrasoMaximo;
+    private final boolean verificarReplicacao;
+    private final ScheduledExecutorService executor;
+
+    private volatile boolean disponivel;
+    private volatile long atrasoSegundos = -1;
+    private volatile String motivo = "Aguardando a primeira verificação";
+
+    /**
+     * @param verificarReplicacao false para usar como réplica um banco sem replicação configurada
+     *                            (ex.: duas instâncias locais); só a conexão é verificada
+     */
+    public ReplicaMonitor(DataSource replica, Duration atrasoMaximo, Duration intervalo,
+                          boolean verificarReplicacao, MeterRegistry meterRegistry) {
+        this.replica = replica;
+        this.atrasoMaximo = atrasoMaximo;
+        this.verificarReplicacao = verificarReplicacao;
+
+        Gauge.builder("finansync.datasource.replica.available", this, m -> m.disponivel ? 1 : 0)
+                .description("1 quando as leituras estão sendo enviadas à réplica")
+                .register(meterRegistry);
+        Gauge.builder("finansync.datasource.replica.lag", this, m -> m.atrasoSegundos)
+                .description("Atraso da replicação na última verificação (-1 quando desconhecido)")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "replica-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::verificar, 0, intervalo.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public boolean isDisponivel() {
+        return disponivel;
+    }
+
+    /**
+     * Marca a réplica como indisponível até a próxima verificação bem-sucedida.
+     */
+    public void registrarFalha(SQLException e) {
+        indisponivel(-1, "Falha ao obter conexão: " + e.getMessage());
+    }
+
+    void verificar() {
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout(5);
+            if (!verificarReplicacao) {
+                statement.execute("SELECT 1");
+                disponivel(0);
+                return;
+            }
+            // MySQL 8.0.22+; versões anteriores usam SHOW SLAVE STATUS / Seconds_Behind_Master
+            try (ResultSet status = statement.executeQuery("SHOW REPLICA STATUS")) {
+                if (!status.next()) {
+                    indisponivel(-1, "O banco não é uma réplica (SHOW REPLICA STATUS vazio)");
+                    return;
+                }
+                long atraso = status.getLong("Seconds_Behind_Source");
+                if (status.wasNull()) {
+                    indisponivel(-1, "Replicação parada");
+                } else if (atraso > atrasoMaximo.toSeconds()) {
+                    indisponivel(atraso, "Atraso de " + atraso + "s acima do limite de " + atrasoMaximo.toSeconds() + "s");
+                } else {
+                    disponivel(atraso);
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            indisponivel(-1, e.getMessage());
+        }
+    }
+
+    private void disponivel(long atraso) {
+        atrasoSegundos = atraso;
+        motivo = null;
+        if (!disponivel) {
+            disponivel = true;
+            logger.info("Réplica de leitura disponível (atraso: {}s); leituras readOnly enviadas à réplica.", atraso);
+        }
+    }
+
+    private void indisponivel(long atraso, String motivo) {
+        atrasoSegundos = atraso;
+        this.motivo = motivo;
+        if (disponivel) {
+            disponivel = false;
+            logger.warn("Réplica de leitura indisponível, leituras enviadas ao primário: {}", motivo);
+        }
+    }
+
+    @Override
+    public Health health() {
+        // UP em ambos os casos: sem a réplica, as leituras seguem no primário
+        Health.Builder health = Health.up()
+                .withDetail("roteamento", disponivel ? "replica" : "primario")
+                .withDetail("atrasoSegundos", atrasoSegundos);
+        if (motivo != null) health.withDetail("motivo", motivo);
+        return health.build();
+    }
+}
@@ -1,11 +1,18 @@
 package com.gustavo.finansync.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.actuate.health.HealthEndpoint;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClientManager;
@@ -31,6 +38,53 @@ public class SecurityConfig {
     @Value("${jwt.secret}")
     private String jwtSecret;
 
+    @Value("${finansync.security.bcrypt.strength:10}")
+    private int bcryptStrength;
+
+    @Value("${finansync.jwt.cache.enabled:true}")
+    private boolean jwtCacheEnabled;
+
+    @Value("${finansync.jwt.cache.max-size:10000}")
+    private long jwtCacheMaxSize;
+
+    @Value("${finansync.actuator.username:prometheus}")
+    private String actuatorUsername;
+
+    @Value("${finansync.actuator.password:}")
+    private String actuatorPassword;
+
+    /**
+     * Endpoints do actuator: apenas /actuator/health é público; os demais (métricas, Prometheus)
+     * exigem a credencial de coleta (HTTP Basic, finansync.actuator.*), e não o JWT de um usuário.
+     * Sem senha configurada, ninguém acessa as métricas.
+     */
+    @Bean
+    @Order(1)
+    public SecurityFilterChain actuatorFilterChain(HttpSecurity http, PasswordEncoder passwordEncoder) throws Exception {
+        InMemoryUserDetailsManager coleta = new InMemoryUserDetailsManager();
+        if (!actuatorPassword.isBlank()) {
+            coleta.createUser(User.withUsername(actuatorUsername)
+                    .password(passwordEncoder.encode(actuatorPassword))
+                    .roles("ACTUATOR")
+                    .build());
+        }
+
+        http
+                .securityMatcher(EndpointRequest.toAnyEndpoint())
+                .csrf(csrf -> csrf.disable())
+                .sessionManagement(session -> session
+                        .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
+                )
+                .authorizeHttpRequests(auth -> auth
+                        .requestMatchers(EndpointRequest.to(HealthEndpoint.class)).permitAll()
+                        .anyRequest().hasRole("ACTUATOR")
+                )
+                .userDetailsService(coleta)
+                .httpBasic(Customizer.withDefaults());
+
+        return http.build();
+    }
+
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         http
@@ -64,7 +118,8 @@ public class SecurityConfig {
     // Seus outros Beans (passwordEncoder, corsConfigurationSource) continuam iguais...
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        // Hashes com custo menor que o configurado são refeitos no próximo login (UserService)
+        return new BCryptPasswordEncoder(bcryptStrength);
     }
 
     @Bean
@@ -81,7 +136,7 @@ public class SecurityConfig {
     }
 
     @Bean
-    public JwtDecoder jwtDecoder() {
+    public JwtDecoder jwtDecoder(MeterRegistry meterRegistry) {
         // **A CORREÇÃO ESTÁ AQUI**
         // 1. Decodifica a string Base64 para obter os bytes da chave
         byte[] keyBytes = Base64.getDecoder().decode(this.jwtSecret);
@@ -89,7 +144,10 @@ public class SecurityConfig {
         // 2. Cria a SecretKeySpec com os bytes decodificados
         SecretKeySpec secretKey = new SecretKeySpec(keyBytes, "HmacSHA256");
 
-        return NimbusJwtDecoder.withSecretKey(secretKey).build();
+        JwtDecoder decoder = NimbusJwtDecoder.withSecretKey(secretKey).build();
+
+        // 3. Opcionalmente guarda os tokens já verificados até expirarem
+        return jwtCacheEnabled ? new CachingJwtDecoder(decoder, jwtCacheMaxSize, meterRegistry) : decoder;
     }
 
     @Bean
@@ -1,13 +1,17 @@
 package com.gustavo.finansync.controller;
 
 import com.gustavo.finansync.dto.AuthDTOs;
-import com.gustavo.finansync.entity.User;
 import com.gustavo.finansync.service.JwtTokenService;
 import com.gustavo.finansync.service.UserService;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
 @RestController
 @RequestMapping("/api/auth")
 public class AuthController {
@@ -20,25 +24,46 @@ public class AuthController {
         this.jwtTokenService = jwtTokenService;
     }
 
+    /**
+     * Registro e login retornam CompletableFuture: o BCrypt roda num pool próprio e a thread
+     * do Tomcat é liberada enquanto isso. Com o pool cheio a resposta é 503 imediatamente.
+     */
     @PostMapping("/register")
-    public ResponseEntity<String> registerUser(@RequestBody AuthDTOs.UserRegisterRequest request) {
-        try {
-            userService.register(request);
-            return ResponseEntity.status(HttpStatus.CREATED).body("Usuário registrado com sucesso!");
-        } catch (IllegalStateException e) {
-            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
-        }
+    public CompletableFuture<ResponseEntity<String>> registerUser(@RequestBody AuthDTOs.UserRegisterRequest request) {
+        return userService.register(request)
+                .thenApply(user -> ResponseEntity.status(HttpStatus.CREATED).body("Usuário registrado com sucesso!"))
+                .exceptionally(e -> {
+                    Throwable causa = causa(e);
+                    if (causa instanceof IllegalStateException) {
+                        return ResponseEntity.status(HttpStatus.CONFLICT).body(causa.getMessage());
+                    }
+                    if (causa instanceof RejectedExecutionException) {
+                        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                                .header(HttpHeaders.RETRY_AFTER, "1").body("Servidor ocupado, tente novamente.");
+                    }
+                    throw new CompletionException(causa);
+                });
     }
 
     @PostMapping("/login")
-    public ResponseEntity<AuthDTOs.AuthResponse> login(@RequestBody AuthDTOs.UserLoginRequest request) {
-        try {
-            User usuario = userService.authenticate(request.email(), request.password());
-            String token = jwtTokenService.generateToken(usuario);
-            return ResponseEntity.ok(new AuthDTOs.AuthResponse(token));
-        } catch (IllegalArgumentException e) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null);
-        }
+    public CompletableFuture<ResponseEntity<AuthDTOs.AuthResponse>> login(@RequestBody AuthDTOs.UserLoginRequest request) {
+        return userService.authenticate(request.email(), request.password())
+                .thenApply(usuario -> ResponseEntity.ok(new AuthDTOs.AuthResponse(jwtTokenService.generateToken(usuario))))
+                .exceptionally(e -> {
+                    Throwable causa = causa(e);
+                    if (causa instanceof IllegalArgumentException) {
+                        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null);
+                    }
+                    if (causa instanceof RejectedExecutionException) {
+                        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                                .header(HttpHeaders.RETRY_AFTER, "1").body(null);
+                    }
+                    throw new CompletionException(causa);
+                });
+    }
+
+    private static Throwable causa(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
     }
 }
 
@@ -1,6 +1,8 @@
 package com.gustavo.finansync.controller;
 
 import com.gustavo.finansync.service.GmailAuthService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -15,6 +17,8 @@ import java.util.Map;
 @RequestMapping("/api/gmail")
 public class GmailController {
 
+    private static final Logger logger = LoggerFactory.getLogger(GmailController.class);
+
     @Autowired
     private GmailAuthService gmailAuthService;
 
@@ -27,7 +31,7 @@ public class GmailController {
             String url = gmailAuthService.getAuthorizationUrl(principal.getName());
             return ResponseEntity.ok(url); // text/plain
         } catch (Exception e) {
-            e.printStackTrace();
+            logger.error("Erro ao gerar URL de autorização do Gmail", e);
             return ResponseEntity.status(500).body("Erro ao gerar URL de autorização");
         }
     }
@@ -41,7 +45,7 @@ public class GmailController {
             // Redireciona para o seu frontend (ajuste a URL se necessário)
             return new RedirectView("http://localhost:5173/dashboard?gmail=connected");
         } catch (Exception e) {
-            e.printStackTrace();
+            logger.error("Erro ao trocar o código de autorização do Gmail", e);
             return new RedirectView("http://localhost:5173/dashboard?gmail=error");
         }
     }
@@ -3,7 +3,7 @@ package com.gustavo.finansync.controller;
 import com.gustavo.finansync.dto.response.ApiResponse;
 import com.gustavo.finansync.dto.response.HealthResponse;
 import com.gustavo.finansync.repository.UserRepository;
-import com.gustavo.finansync.repository.TransactionRepository;
+import com.gustavo.finansync.service.TransactionCounterService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -29,7 +29,7 @@ public class HealthController {
     private UserRepository userRepository;
 
     @Autowired
-    private TransactionRepository transactionRepository;
+    private TransactionCounterService transactionCounterService;
 
     @Autowired
     private DataSource dataSource;
@@ -117,7 +117,8 @@ public class HealthController {
                 if (connection.isValid(5)) { // timeout de 5 segundos
                     // Obter métricas básicas
                     long totalUsers = userRepository.count();
-                    long totalTransactions = transactionRepository.count();
+                    // Soma dos contadores por usuário, sem varrer transactions
+                    long totalTransactions = transactionCounterService.contarTodas();
 
                     return new HealthResponse.DatabaseInfo(
                             "CONNECTED", totalUsers, totalTransactions);
@@ -1,17 +1,33 @@
 package com.gustavo.finansync.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.gustavo.finansync.config.CurrentUser;
+import com.gustavo.finansync.dto.BulkResultDTO;
+import com.gustavo.finansync.dto.BulkTransactionRequest;
+import com.gustavo.finansync.dto.CategoryTotalDTO;
+import com.gustavo.finansync.dto.CursorPage;
 import com.gustavo.finansync.dto.TransactionDTO;
+import com.gustavo.finansync.dto.TransactionSummaryDTO;
+import com.gustavo.finansync.entity.TransactionType;
 import com.gustavo.finansync.entity.User;
+import com.gustavo.finansync.service.MonthlySummaryService;
+import com.gustavo.finansync.service.TransactionCounterService;
 import com.gustavo.finansync.service.TransactionService;
-import com.gustavo.finansync.service.UserService;
-import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Pageable;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -20,40 +36,79 @@ import java.util.List;
 public class TransactionController {
 
     private final TransactionService transactionService;
-    private final UserService userService;
+    private final MonthlySummaryService monthlySummaryService;
+    private final TransactionCounterService transactionCounterService;
+    private final ObjectMapper objectMapper;
 
-    public TransactionController(TransactionService transactionService, UserService userService) {
+    private static final int MAX_CURSOR_PAGE_SIZE = 200;
+    private static final String NDJSON_VALUE = "application/x-ndjson";
+
+    public TransactionController(TransactionService transactionService,
+                                 MonthlySummaryService monthlySummaryService,
+                                 TransactionCounterService transactionCounterService, ObjectMapper objectMapper) {
         this.transactionService = transactionService;
-        this.userService = userService;
+        this.monthlySummaryService = monthlySummaryService;
+        this.transactionCounterService = transactionCounterService;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping
-    public ResponseEntity<TransactionDTO> createTransaction(@RequestBody TransactionDTO dto, Authentication authentication) {
-        // Supondo que o 'name' do Principal é o email do usuário
-        String userEmail = authentication.getName();
-        // Você precisará de um método no UserService para buscar por email
-        User user = userService.findByEmail(userEmail);
-
+    public ResponseEntity<TransactionDTO> createTransaction(@RequestBody TransactionDTO dto, @CurrentUser User user) {
         TransactionDTO createdDto = transactionService.create(dto, user.getId());
         return ResponseEntity.status(HttpStatus.CREATED).body(createdDto);
     }
 
+    /**
+     * Retorna todas as transações filtradas, escritas na resposta à medida que são lidas do banco.
+     * Por padrão o corpo é um array JSON; com format=ndjson (ou Accept: application/x-ndjson)
+     * cada transação é enviada como uma linha JSON independente.
+     */
     @GetMapping("/all")
-    public ResponseEntity<List<TransactionDTO>> getAllFilteredTransactions(
+    public ResponseEntity<StreamingResponseBody> getAllFilteredTransactions(
             @RequestParam(required = false, defaultValue = "") String description,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
-            Authentication authentication) {
-
-        User user = userService.findByEmail(authentication.getName());
-        List<TransactionDTO> transactions = transactionService.findAllByUserNoPagination(user, description, startDate, endDate);
-        return ResponseEntity.ok(transactions);
+            @RequestParam(required = false, defaultValue = "json") String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @CurrentUser User user) {
+        boolean ndjson = "ndjson".equalsIgnoreCase(format)
+                || (accept != null && accept.contains(NDJSON_VALUE));
+
+        StreamingResponseBody body = out -> {
+            if (ndjson) {
+                try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                    // As linhas são separadas por '\n' explicitamente, sem o espaço padrão entre valores raiz
+                    generator.setRootValueSeparator(null);
+                    transactionService.streamAllByUser(user, description, startDate, endDate, dto -> {
+                        try {
+                            generator.writeObject(dto);
+                            generator.writeRaw('\n');
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                }
+            } else {
+                try (SequenceWriter writer = objectMapper.writerFor(TransactionDTO.class)
+                        .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                        .writeValuesAsArray(out)) {
+                    transactionService.streamAllByUser(user, description, startDate, endDate, dto -> {
+                        try {
+                            writer.write(dto);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                }
+            }
+        };
+        MediaType contentType = ndjson ? MediaType.parseMediaType(NDJSON_VALUE) : MediaType.APPLICATION_JSON;
+        return ResponseEntity.ok().contentType(contentType).body(body);
     }
 
 
     @PutMapping("/{id}")
-    public ResponseEntity<TransactionDTO> updateTransaction(@PathVariable Long id, @RequestBody TransactionDTO dto, Authentication authentication) {
-        User user = userService.findByEmail(authentication.getName());
+    public ResponseEntity<TransactionDTO> updateTransaction(@PathVariable Long id, @RequestBody TransactionDTO dto, @CurrentUser User user) {
         try {
             TransactionDTO updatedDto = transactionService.updateForUser(id, dto, user);
             return ResponseEntity.ok(updatedDto);
@@ -63,8 +118,7 @@ public class TransactionController {
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteTransaction(@PathVariable Long id,Authentication authentication) {
-        User user = userService.findByEmail(authentication.getName());
+    public ResponseEntity<Void> deleteTransaction(@PathVariable Long id, @CurrentUser User user) {
         try {
             transactionService.deleteForUser(id, user);
             return ResponseEntity.noContent().build();
@@ -73,21 +127,117 @@ public class TransactionController {
         }
     }
 
+    /**
+     * Altera a categoria de várias transações de uma vez, por ids ou por filtros de descrição e período.
+     */
+    @PutMapping("/bulk/category")
+    public ResponseEntity<BulkResultDTO> updateCategoryBulk(@RequestBody BulkTransactionRequest request, @CurrentUser User user) {
+        try {
+            return ResponseEntity.ok(new BulkResultDTO(transactionService.updateCategoryForUser(user, request)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Exclui várias transações de uma vez, por ids ou por filtros de descrição e período.
+     */
+    @PostMapping("/bulk/delete")
+    public ResponseEntity<BulkResultDTO> deleteBulk(@RequestBody BulkTransactionRequest request, @CurrentUser User user) {
+        try {
+            return ResponseEntity.ok(new BulkResultDTO(transactionService.deleteForUser(user, request)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Listagem paginada. Com count=false a resposta não traz totalElements/totalPages
+     * (apenas hasNext) e nenhum COUNT é executado.
+     */
     @GetMapping
-    public ResponseEntity<Page<TransactionDTO>> getAllTransactions(
+    public ResponseEntity<Slice<TransactionDTO>> getAllTransactions(
             @RequestParam(required = false, defaultValue = "") String description,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
-            Authentication authentication) {
-
-        User user = userService.findByEmail(authentication.getName());
-        Page<TransactionDTO> transactions = transactionService.findByDateRange(
-                user, description, startDate, endDate, page, size
+            @RequestParam(defaultValue = "true") boolean count,
+            @CurrentUser User user) {
+        Slice<TransactionDTO> transactions = transactionService.findByDateRange(
+                user, description, startDate, endDate, page, size, count
         );
         return ResponseEntity.ok(transactions);
     }
 
-}
+    /**
+     * Listagem por cursor: em vez de page, o cliente envia o nextCursor da resposta anterior.
+     * Não executa COUNT e o tempo por página é constante em qualquer profundidade.
+     */
+    @GetMapping("/cursor")
+    public ResponseEntity<CursorPage<TransactionDTO>> getTransactionsByCursor(
+            @RequestParam(required = false, defaultValue = "") String description,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @CurrentUser User user) {
+        int pageSize = Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+        try {
+            CursorPage<TransactionDTO> transactions = transactionService.findByCursor(
+                    user, description, startDate, endDate, cursor, pageSize);
+            return ResponseEntity.ok(transactions);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
 
+    /**
+     * Busca textual na descrição, ordenada por relevância.
+     * Cada palavra é tratada como prefixo: "merc liv" encontra "MERCADO LIVRE".
+     * Com count=false, devolve a página sem o total (sem COUNT).
+     */
+    @GetMapping("/search")
+    public ResponseEntity<Slice<TransactionDTO>> searchTransactions(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "true") boolean count,
+            @CurrentUser User user) {
+        return ResponseEntity.ok(transactionService.search(user, q, page, size, count));
+    }
+
+    /**
+     * Soma e quantidade de transações por categoria, para os gráficos de distribuição.
+     */
+    @GetMapping("/categories")
+    public ResponseEntity<List<CategoryTotalDTO>> getCategoryBreakdown(
+            @RequestParam(defaultValue = "DESPESA") TransactionType type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @CurrentUser User user) {
+        return ResponseEntity.ok(transactionService.sumByCategory(user, type, startDate, endDate));
+    }
+
+    /**
+     * Totais de receitas, despesas e saldo do período, servidos pelos resumos mensais.
+     */
+    @GetMapping("/summary")
+    public ResponseEntity<TransactionSummaryDTO> getSummary(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @CurrentUser User user) {
+        return ResponseEntity.ok(monthlySummaryService.resumir(user, startDate, endDate));
+    }
+
+    /**
+     * Recalcula os resumos mensais e a quantidade de transações do usuário a partir das transações.
+     */
+    @PostMapping("/summary/rebuild")
+    public ResponseEntity<Void> rebuildSummary(@CurrentUser User user) {
+        monthlySummaryService.reconstruir(user.getId());
+        transactionCounterService.reconstruir(user.getId());
+        return ResponseEntity.noContent().build();
+    }
+
+}
@@ -1,62 +1,338 @@
 package com.gustavo.finansync.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.google.api.services.gmail.Gmail;
+import com.gustavo.finansync.config.CurrentUser;
+import com.gustavo.finansync.dto.ImportJobDTO;
 import com.gustavo.finansync.dto.TransactionDTO;
 import com.gustavo.finansync.entity.User;
 import com.gustavo.finansync.service.*;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api/transactions/import")
 public class TransactionImportController {
 
-    private final GmailService gmailService;
+    private static final Logger logger = LoggerFactory.getLogger(TransactionImportController.class);
+
     private final CsvParsingService csvParsingService;
-    private final UserService userService;
     private final TransactionService transactionService;
     private final GmailAuthService gmailAuthService;
+    private final GmailSyncService gmailSyncService;
+    private final ImportJobService importJobService;
+    private final ObjectMapper objectMapper;
+    // Mesmo limite do upload multipart, aplicado também ao corpo enviado diretamente
+    private final long tamanhoMaximoUpload;
 
-    public TransactionImportController(GmailService gmailService, CsvParsingService csvParsingService, UserService userService,
-                                       TransactionService transactionService, GmailAuthService gmailAuthService) {
-        this.gmailService = gmailService;
+    public TransactionImportController(CsvParsingService csvParsingService, TransactionService transactionService,
+                                       GmailAuthService gmailAuthService, GmailSyncService gmailSyncService,
+                                       ImportJobService importJobService, ObjectMapper objectMapper,
+                                       @Value("${spring.servlet.multipart.max-file-size:512MB}") DataSize tamanhoMaximoUpload) {
         this.csvParsingService = csvParsingService;
-        this.userService = userService;
         this.transactionService = transactionService;
         this.gmailAuthService = gmailAuthService;
+        this.gmailSyncService = gmailSyncService;
+        this.importJobService = importJobService;
+        this.objectMapper = objectMapper;
+        this.tamanhoMaximoUpload = tamanhoMaximoUpload.toBytes();
     }
 
-    @GetMapping("/analyze")
-    public List<TransactionDTO> analyze(
+    /**
+     * Analisa os extratos do Gmail que ainda não foram importados.
+     * As transações são escritas no array JSON da resposta conforme cada linha é decodificada,
+     * sem acumular o resultado completo em memória. Ao final, as mensagens sem nenhuma transação
+     * deixam de ser pendentes (ver {@link GmailSyncService#descartarMensagensSemTransacoes}).
+     */
+    @GetMapping(value = "/analyze", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> analyze(
             @RequestParam String remetente,
             @RequestParam String assunto,
+            @CurrentUser User user,
             Authentication authentication
     ) throws Exception {
-        String userEmail = authentication.getName();
         // Obtenha o Gmail autenticado para o usuário
-        Gmail gmail = gmailAuthService.getGmailService(userEmail);
+        Gmail gmail = gmailAuthService.getGmailService(authentication.getName());
+
+        // Busque apenas os anexos de mensagens novas desde a última importação
+        List<GmailService.AnexoCsv> anexos = gmailSyncService.buscarNovosAnexos(gmail, user, remetente, assunto);
+
+        StreamingResponseBody body = out -> {
+            try (SequenceWriter writer = objectMapper.writerFor(TransactionDTO.class)
+                    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                    .writeValuesAsArray(out)) {
+                Set<String> semTransacoes = new LinkedHashSet<>();
+                Set<String> comTransacoes = new HashSet<>();
+                for (GmailService.AnexoCsv anexo : anexos) {
+                    Stream<TransactionDTO> transactions;
+                    try {
+                        transactions = csvParsingService.streamCsv(anexo.conteudo());
+                    } catch (IllegalArgumentException e) {
+                        logger.warn("Anexo {} da mensagem {} ignorado: {}", anexo.filename(), anexo.messageId(), e.getMessage());
+                        semTransacoes.add(anexo.messageId());
+                        continue;
+                    }
+                    try (transactions) {
+                        Iterator<TransactionDTO> it = transactions.iterator();
+                        (it.hasNext() ? comTransacoes : semTransacoes).add(anexo.messageId());
+                        while (it.hasNext()) {
+                            writer.write(it.next().withEmailMessageId(anexo.messageId()));
+                        }
+                    }
+                }
+                semTransacoes.removeAll(comTransacoes);
+                gmailSyncService.descartarMensagensSemTransacoes(user, semTransacoes);
+            } finally {
+                // Anexos não lidos (cliente desconectou ou erro no meio da resposta)
+                GmailService.descartar(anexos);
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * Analisa um extrato CSV enviado diretamente (campo "arquivo" do formulário multipart).
+     * O arquivo é gravado em disco e convertido em paralelo; as transações voltam no array JSON
+     * da resposta, na ordem do arquivo, para revisão e confirmação em POST /confirm.
+     * Arquivos fora dos formatos conhecidos recebem 422 antes de qualquer linha ser lida.
+     */
+    @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> upload(@RequestParam("arquivo") MultipartFile arquivo) throws IOException {
+        Path temporario = Files.createTempFile("finansync-upload-", ".csv");
+        try {
+            arquivo.transferTo(temporario);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporario);
+            throw e;
+        }
+        return analisarArquivo(temporario);
+    }
+
+    /**
+     * Mesma análise de /upload, com o extrato enviado como corpo da requisição
+     * (text/csv ou application/octet-stream), copiado para o disco conforme chega.
+     * Corpos maiores que spring.servlet.multipart.max-file-size recebem 413.
+     */
+    @PostMapping(value = "/upload", consumes = {"text/csv", MediaType.APPLICATION_OCTET_STREAM_VALUE},
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> uploadStream(HttpServletRequest request) throws IOException {
+        if (request.getContentLengthLong() > tamanhoMaximoUpload) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+        Path temporario = Files.createTempFile("finansync-upload-", ".csv");
+        boolean copiado;
+        try (InputStream in = request.getInputStream()) {
+            copiado = copiarComLimite(in, temporario, tamanhoMaximoUpload);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporario);
+            throw e;
+        }
+        if (!copiado) {
+            // Sem Content-Length (chunked) ou com valor menor que o corpo real
+            Files.deleteIfExists(temporario);
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+        return analisarArquivo(temporario);
+    }
+
+    // Copia a entrada para o arquivo, parando assim que passar do limite (retorna false)
+    private static boolean copiarComLimite(InputStream in, Path destino, long limite) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        long total = 0;
+        try (OutputStream out = Files.newOutputStream(destino)) {
+            int lidos;
+            while ((lidos = in.read(buffer)) != -1) {
+                total += lidos;
+                if (total > limite) return false;
+                out.write(buffer, 0, lidos);
+            }
+        }
+        return true;
+    }
+
+    private ResponseEntity<StreamingResponseBody> analisarArquivo(Path arquivo) throws IOException {
+        FormatoExtrato formato;
+        try {
+            formato = csvParsingService.detectarFormato(arquivo);
+        } catch (IllegalArgumentException e) {
+            Files.deleteIfExists(arquivo);
+            String erro = e.getMessage();
+            return ResponseEntity.unprocessableEntity().contentType(MediaType.APPLICATION_JSON)
+                    .body(out -> objectMapper.writeValue(out, Map.of("erro", erro)));
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(arquivo);
+            throw e;
+        }
+        logger.debug("Extrato enviado reconhecido como {}", formato.nome());
+        StreamingResponseBody body = out -> {
+            try (SequenceWriter writer = objectMapper.writerFor(TransactionDTO.class)
+                    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                    .writeValuesAsArray(out)) {
+                csvParsingService.parseArquivo(arquivo, dto -> {
+                    try {
+                        writer.write(dto);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } finally {
+                Files.deleteIfExists(arquivo);
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * Confirma a importação do array JSON enviado no corpo.
+     * O corpo é copiado para o disco antes de abrir a transação do banco, para que um cliente lento
+     * não segure uma conexão do pool (e os locks da importação) enquanto envia; depois o arquivo é
+     * lido elemento a elemento e as transações são persistidas em blocos.
+     * Corpos maiores que spring.servlet.multipart.max-file-size recebem 413.
+     * Uma transação inválida (ou JSON malformado) desfaz a importação inteira e responde 400.
+     * Se uma confirmação simultânea gravou as mesmas transações, nada é salvo e a resposta é 409;
+     * repetida, a confirmação ignora o que a outra já gravou.
+     */
+    @PostMapping(value = "/confirm", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, String>> confirmImport(HttpServletRequest request, @CurrentUser User user) throws IOException {
+        if (request.getContentLengthLong() > tamanhoMaximoUpload) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+        }
+        Path temporario = Files.createTempFile("finansync-confirm-", ".json");
+        try {
+            try (InputStream in = request.getInputStream()) {
+                if (!copiarComLimite(in, temporario, tamanhoMaximoUpload)) {
+                    return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+                }
+            }
+            Set<String> mensagens = new HashSet<>();
+            try (MappingIterator<TransactionDTO> transactions = objectMapper.readerFor(TransactionDTO.class)
+                    .readValues(temporario.toFile())) {
+                transactionService.saveImportedTransactions(GmailSyncService.registrandoMensagens(transactions, mensagens), user);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("erro", e.getMessage()));
+            } catch (IllegalStateException e) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("erro", e.getMessage()));
+            } catch (JsonProcessingException | RuntimeJsonMappingException e) {
+                return ResponseEntity.badRequest().body(Map.of("erro", "JSON inválido"));
+            } catch (RuntimeException e) {
+                // O MappingIterator embrulha erros de sintaxe (ex.: JSON truncado) numa RuntimeException
+                if (!(e.getCause() instanceof JsonProcessingException)) throw e;
+                return ResponseEntity.badRequest().body(Map.of("erro", "JSON inválido"));
+            }
+            gmailSyncService.confirmarSincronizacao(user, mensagens);
+            return ResponseEntity.ok().build();
+        } finally {
+            Files.deleteIfExists(temporario);
+        }
+    }
+
+    /**
+     * Inicia a análise em segundo plano e retorna o id do job imediatamente (202).
+     * O andamento pode ser consultado em GET /jobs/{id} ou acompanhado em GET /jobs/{id}/events.
+     */
+    @PostMapping("/jobs")
+    public ResponseEntity<ImportJobDTO> startJob(
+            @RequestParam String remetente,
+            @RequestParam String assunto,
+            @CurrentUser User user,
+            Authentication authentication) {
+        try {
+            ImportJobDTO job = importJobService.iniciar(user.getId(), authentication.getName(), remetente, assunto);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/transactions/import/jobs/" + job.id()))
+                    .body(job);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "5").build();
+        }
+    }
 
-        // Busque os anexos usando o Gmail autenticado
-        List<InputStream> anexos = gmailService.buscarAnexosCsv(gmail, "me", remetente, assunto);
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<ImportJobDTO> jobStatus(@PathVariable String id, @CurrentUser User user) {
+        try {
+            return ResponseEntity.ok(importJobService.status(id, user.getId()));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
 
-        List<TransactionDTO> allTransactions = new ArrayList<>();
-        for (InputStream csv : anexos) {
-            allTransactions.addAll(csvParsingService.parseCsv(csv));
+    /**
+     * Eventos SSE do job: "progress" a cada avanço e "concluido" ou "falhou" ao terminar.
+     */
+    @GetMapping(value = "/jobs/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> jobEvents(@PathVariable String id, @CurrentUser User user) {
+        try {
+            return ResponseEntity.ok(importJobService.acompanhar(id, user.getId()));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
         }
+    }
 
-        return allTransactions;
+    /**
+     * Transações analisadas pelo job (array JSON), para revisão antes da confirmação.
+     */
+    @GetMapping(value = "/jobs/{id}/result", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> jobResult(@PathVariable String id, @CurrentUser User user) {
+        Long userId = user.getId();
+        try {
+            // Valida o job antes de iniciar a resposta
+            importJobService.status(id, userId);
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        }
+        StreamingResponseBody body = out -> importJobService.escreverResultado(id, userId, out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
     }
 
-    @PostMapping("/confirm")
-    public ResponseEntity<Void> confirmImport(@RequestBody List<TransactionDTO> transactions, Authentication authentication) {
-        String userEmail = authentication.getName();
-        User user = userService.findByEmail(userEmail);
-        transactionService.saveImportedTransactions(transactions, user);
-        return ResponseEntity.ok().build();
+    /**
+     * Importa todas as transações analisadas pelo job.
+     * Para importar uma seleção revisada, use POST /confirm com as transações no corpo.
+     * Responde 409 se o job ainda não terminou ou se uma confirmação simultânea gravou as mesmas
+     * transações (o job continua disponível para uma nova tentativa).
+     */
+    @PostMapping("/jobs/{id}/confirm")
+    public ResponseEntity<Map<String, Long>> confirmJob(@PathVariable String id, @CurrentUser User user) throws IOException {
+        try {
+            long importadas = importJobService.confirmar(id, user);
+            return ResponseEntity.ok(Map.of("importadas", importadas));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
     }
 }
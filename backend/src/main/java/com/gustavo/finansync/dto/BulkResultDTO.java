@@ -0,0 +1,7 @@
+package com.gustavo.finansync.dto;
+
+/**
+ * Resultado de uma alteração ou exclusão em massa
+ * @param affected Quantidade de transações alteradas ou excluídas
+ */
+public record BulkResultDTO(long affected) {}
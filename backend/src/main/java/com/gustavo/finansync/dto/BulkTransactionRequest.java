@@ -0,0 +1,22 @@
+package com.gustavo.finansync.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Seleção de transações do usuário para alteração ou exclusão em massa.
+ * Com ids, apenas eles são considerados (ids de outros usuários são ignorados);
+ * sem ids, as transações que atendem aos filtros de descrição e período.
+ * @param ids Transações selecionadas
+ * @param description Filtro por descrição (mesma busca das listagens)
+ * @param startDate Data inicial
+ * @param endDate Data final
+ * @param category Nova categoria (apenas na alteração; vazia remove a categoria)
+ */
+public record BulkTransactionRequest(
+        List<Long> ids,
+        String description,
+        LocalDate startDate,
+        LocalDate endDate,
+        String category
+) {}
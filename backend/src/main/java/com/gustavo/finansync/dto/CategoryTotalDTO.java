@@ -0,0 +1,12 @@
+package com.gustavo.finansync.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Total e quantidade de transações de uma categoria (category null = sem categoria)
+ */
+public record CategoryTotalDTO(
+        String category,
+        BigDecimal total,
+        Long count
+) {}
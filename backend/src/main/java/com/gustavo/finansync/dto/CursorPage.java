@@ -0,0 +1,11 @@
+package com.gustavo.finansync.dto;
+
+import java.util.List;
+
+/**
+ * Página de uma listagem por cursor (keyset).
+ * @param content Itens da página
+ * @param nextCursor Token opaco para buscar a próxima página (null quando não há mais itens)
+ * @param hasNext Indica se existe próxima página
+ */
+public record CursorPage<T>(List<T> content, String nextCursor, boolean hasNext) {}
@@ -0,0 +1,17 @@
+package com.gustavo.finansync.dto;
+
+/**
+ * Estado de uma importação do Gmail executada em segundo plano.
+ * @param status PENDENTE, EM_ANDAMENTO, CONCLUIDO ou FALHOU
+ * @param mensagensEncontradas Mensagens novas localizadas (null até a busca terminar)
+ * @param erro Motivo da falha, quando status = FALHOU
+ */
+public record ImportJobDTO(
+        String id,
+        String status,
+        Integer mensagensEncontradas,
+        long mensagensLidas,
+        long anexosBaixados,
+        long linhasProcessadas,
+        String erro
+) {}
@@ -10,5 +10,16 @@ public record TransactionDTO(
         String category,
         BigDecimal amount,
         LocalDate transactionDate,
-        TransactionType type
-) {}
+        TransactionType type,
+        String emailMessageId
+) {
+    public TransactionDTO(Long id, String description, String category, BigDecimal amount,
+                          LocalDate transactionDate, TransactionType type) {
+        this(id, description, category, amount, transactionDate, type, null);
+    }
+
+    // Associa a transação à mensagem do Gmail de onde ela foi importada
+    public TransactionDTO withEmailMessageId(String emailMessageId) {
+        return new TransactionDTO(id, description, category, amount, transactionDate, type, emailMessageId);
+    }
+}
@@ -0,0 +1,12 @@
+package com.gustavo.finansync.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public record TransactionSummaryDTO(
+        LocalDate startDate,
+        LocalDate endDate,
+        BigDecimal totalReceitas,
+        BigDecimal totalDespesas,
+        BigDecimal saldo
+) {}
@@ -0,0 +1,41 @@
+package com.gustavo.finansync.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * Entidade GmailPendingMessage - Mensagem do Gmail encontrada na última análise do usuário
+ * e ainda não coberta por uma importação confirmada.
+ */
+@Entity
+@Table(name = "gmail_pending_messages",
+        uniqueConstraints = @UniqueConstraint(name = "uk_gmail_pending_messages_user_message",
+                columnNames = {"user_id", "message_id"}))
+public class GmailPendingMessage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "message_id", nullable = false)
+    private String messageId;
+
+    public GmailPendingMessage() {}
+
+    public GmailPendingMessage(Long userId, String messageId) {
+        this.userId = userId;
+        this.messageId = messageId;
+    }
+
+    // Getters e Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public String getMessageId() { return messageId; }
+    public void setMessageId(String messageId) { this.messageId = messageId; }
+}
@@ -14,7 +14,17 @@ import java.time.LocalDateTime;
  * Entidade Transaction - Representa as transações financeiras
  */
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions",
+        uniqueConstraints = @UniqueConstraint(name = "uk_transactions_user_fingerprint",
+                columnNames = {"user_id", "fingerprint"}),
+        indexes = {
+                @Index(name = "idx_transactions_user_type_date_category",
+                        columnList = "user_id, type, transaction_date, category, amount"),
+                @Index(name = "idx_transactions_user_date_id",
+                        columnList = "user_id, transaction_date, id"),
+                @Index(name = "idx_transactions_user_email_message",
+                        columnList = "user_id, email_message_id")
+        })
 @EntityListeners(AuditingEntityListener.class)
 public class Transaction {
 
@@ -31,6 +41,7 @@ public class Transaction {
     @Column(name = "amount", nullable = false, precision = 15, scale = 2)
     private BigDecimal amount;
 
+    @NotNull(message = "Tipo é obrigatório")
     @Enumerated(EnumType.STRING)
     @Column(name = "type", nullable = false)
     private TransactionType type;
@@ -46,6 +57,10 @@ public class Transaction {
     @Column(name = "email_message_id")
     private String emailMessageId;
 
+    // Impressão digital do conteúdo da linha importada (null em transações manuais)
+    @Column(name = "fingerprint", length = 64)
+    private String fingerprint;
+
     @CreatedDate
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -78,6 +93,7 @@ public class Transaction {
 
     @AssertTrue(message = "Receitas devem ser positivas e despesas negativas")
     public boolean isAmountValid() {
+        if (amount == null) return true; // coberto por @NotNull
         if (type == TransactionType.RECEITA) return amount.compareTo(BigDecimal.ZERO) > 0;
         if (type == TransactionType.DESPESA) return amount.compareTo(BigDecimal.ZERO) < 0;
         return true;
@@ -109,6 +125,9 @@ public class Transaction {
     public String getEmailMessageId() { return emailMessageId; }
     public void setEmailMessageId(String emailMessageId) { this.emailMessageId = emailMessageId; }
 
+    public String getFingerprint() { return fingerprint; }
+    public void setFingerprint(String fingerprint) { this.fingerprint = fingerprint; }
+
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
 
@@ -0,0 +1,29 @@
+package com.gustavo.finansync.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * Entidade TransactionCounter - Quantidade de transações de cada usuário.
+ * Mantida na mesma transação de cada inserção e exclusão em transactions, responde
+ * ao total das listagens paginadas sem COUNT(*).
+ */
+@Entity
+@Table(name = "transaction_counters")
+public class TransactionCounter {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "transaction_count", nullable = false)
+    private Long transactionCount;
+
+    public TransactionCounter() {}
+
+    // Getters e Setters
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public Long getTransactionCount() { return transactionCount; }
+    public void setTransactionCount(Long transactionCount) { this.transactionCount = transactionCount; }
+}
@@ -8,6 +8,7 @@ import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -44,6 +45,27 @@ public class User {
     @Column(name = "gmail_refresh_token", columnDefinition = "TEXT")
     private String gmailRefreshToken;
 
+    // Estado da sincronização incremental com o Gmail.
+    // O checkpoint só avança quando uma importação é confirmada; a análise registra o estado pendente.
+    @Column(name = "gmail_sync_query", length = 500)
+    private String gmailSyncQuery;
+
+    @Column(name = "gmail_history_id")
+    private Long gmailHistoryId;
+
+    // Momento em que o historyId foi lido (null em checkpoints anteriores à V9)
+    @Column(name = "gmail_synced_at")
+    private Instant gmailSyncedAt;
+
+    @Column(name = "gmail_pending_sync_query", length = 500)
+    private String gmailPendingSyncQuery;
+
+    @Column(name = "gmail_pending_history_id")
+    private Long gmailPendingHistoryId;
+
+    @Column(name = "gmail_pending_synced_at")
+    private Instant gmailPendingSyncedAt;
+
     @Column(name = "is_active")
     private Boolean isActive = true;
 
@@ -87,6 +109,24 @@ public class User {
     public String getGmailRefreshToken() { return gmailRefreshToken; }
     public void setGmailRefreshToken(String gmailRefreshToken) { this.gmailRefreshToken = gmailRefreshToken; }
 
+    public String getGmailSyncQuery() { return gmailSyncQuery; }
+    public void setGmailSyncQuery(String gmailSyncQuery) { this.gmailSyncQuery = gmailSyncQuery; }
+
+    public Long getGmailHistoryId() { return gmailHistoryId; }
+    public void setGmailHistoryId(Long gmailHistoryId) { this.gmailHistoryId = gmailHistoryId; }
+
+    public Instant getGmailSyncedAt() { return gmailSyncedAt; }
+    public void setGmailSyncedAt(Instant gmailSyncedAt) { this.gmailSyncedAt = gmailSyncedAt; }
+
+    public String getGmailPendingSyncQuery() { return gmailPendingSyncQuery; }
+    public void setGmailPendingSyncQuery(String gmailPendingSyncQuery) { this.gmailPendingSyncQuery = gmailPendingSyncQuery; }
+
+    public Long getGmailPendingHistoryId() { return gmailPendingHistoryId; }
+    public void setGmailPendingHistoryId(Long gmailPendingHistoryId) { this.gmailPendingHistoryId = gmailPendingHistoryId; }
+
+    public Instant getGmailPendingSyncedAt() { return gmailPendingSyncedAt; }
+    public void setGmailPendingSyncedAt(Instant gmailPendingSyncedAt) { this.gmailPendingSyncedAt = gmailPendingSyncedAt; }
+
     public Boolean getIsActive() { return isActive; }
     public void setIsActive(Boolean isActive) { this.isActive = isActive; }
 
@@ -0,0 +1,45 @@
+package com.gustavo.finansync.repository;
+
+import com.gustavo.finansync.entity.GmailPendingMessage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository para as mensagens do Gmail pendentes de confirmação
+ */
+@Repository
+public interface GmailPendingMessageRepository extends JpaRepository<GmailPendingMessage, Long> {
+
+    @Modifying
+    @Query("DELETE FROM GmailPendingMessage p WHERE p.userId = :userId")
+    void deleteByUserId(@Param("userId") Long userId);
+
+    /**
+     * Remove as mensagens cobertas pela confirmação
+     * @param userId ID do usuário
+     * @param messageIds Mensagens com transações na importação confirmada
+     */
+    @Modifying
+    @Query("DELETE FROM GmailPendingMessage p WHERE p.userId = :userId AND p.messageId IN :messageIds")
+    void deleteByUserIdAndMessageIdIn(@Param("userId") Long userId, @Param("messageIds") Collection<String> messageIds);
+
+    /**
+     * Remove as mensagens que já têm transações importadas
+     * @param userId ID do usuário
+     */
+    @Modifying
+    @Query("DELETE FROM GmailPendingMessage p WHERE p.userId = :userId AND EXISTS (" +
+            "SELECT 1 FROM Transaction t WHERE t.user.id = :userId AND t.emailMessageId = p.messageId)")
+    void deleteImportedByUserId(@Param("userId") Long userId);
+
+    long countByUserId(Long userId);
+
+    @Query("SELECT p.messageId FROM GmailPendingMessage p WHERE p.userId = :userId")
+    List<String> findMessageIdsByUserId(@Param("userId") Long userId);
+}
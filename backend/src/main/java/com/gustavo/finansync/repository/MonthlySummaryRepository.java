@@ -0,0 +1,127 @@
+package com.gustavo.finansync.repository;
+
+import com.gustavo.finansync.entity.MonthlySummary;
+import com.gustavo.finansync.entity.TransactionType;
+import com.gustavo.finansync.entity.User;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+
+/**
+ * Repository para os totais mensais (rollup) de transações
+ */
+@Repository
+public interface MonthlySummaryRepository extends JpaRepository<MonthlySummary, Long> {
+
+    /**
+     * Soma (ou subtrai, com valores negativos) um delta ao total do mês, criando a linha se necessário
+     * @param userId ID do usuário
+     * @param monthStart Primeiro dia do mês
+     * @param type Tipo da transação (nome do enum)
+     * @param category Categoria ("" para transações sem categoria)
+     * @param amount Delta do valor total
+     * @param count Delta da quantidade de transações
+     */
+    @Modifying
+    @Query(value = "INSERT INTO monthly_summaries (user_id, month_start, type, category, total_amount, transaction_count) " +
+            "VALUES (:userId, :monthStart, :type, :category, :amount, :count) " +
+            "ON DUPLICATE KEY UPDATE total_amount = total_amount + VALUES(total_amount), " +
+            "transaction_count = transaction_count + VALUES(transaction_count)",
+            nativeQuery = true)
+    void addDelta(
+            @Param("userId") Long userId,
+            @Param("monthStart") LocalDate monthStart,
+            @Param("type") String type,
+            @Param("category") String category,
+            @Param("amount") BigDecimal amount,
+            @Param("count") long count
+    );
+
+    /**
+     * Soma (sinal 1) ou subtrai (sinal -1) as transações informadas dos totais dos seus meses,
+     * agrupadas no próprio banco: um único INSERT ... SELECT por bloco, em vez de um delta por linha
+     * @param userId ID do usuário (transações de outros usuários são ignoradas)
+     * @param ids Transações
+     * @param sign 1 para somar, -1 para subtrair
+     */
+    @Modifying
+    @Query(value = "INSERT INTO monthly_summaries (user_id, month_start, type, category, total_amount, transaction_count) " +
+            "SELECT t.user_id, DATE_FORMAT(t.transaction_date, '%Y-%m-01'), t.type, COALESCE(t.category, ''), " +
+            ":sign * SUM(t.amount), :sign * COUNT(*) FROM transactions t WHERE t.user_id = :userId AND t.id IN :ids " +
+            "GROUP BY t.user_id, DATE_FORMAT(t.transaction_date, '%Y-%m-01'), t.type, COALESCE(t.category, '') " +
+            "ON DUPLICATE KEY UPDATE total_amount = total_amount + VALUES(total_amount), " +
+            "transaction_count = transaction_count + VALUES(transaction_count)",
+            nativeQuery = true)
+    void addDeltaForTransactions(
+            @Param("userId") Long userId,
+            @Param("ids") Collection<Long> ids,
+            @Param("sign") int sign
+    );
+
+    /**
+     * Apaga a linha do mês se não restou nenhuma transação nela (após um delta negativo),
+     * para que meses e categorias esvaziados não se acumulem na tabela
+     * @param userId ID do usuário
+     * @param monthStart Primeiro dia do mês
+     * @param type Tipo da transação (nome do enum)
+     * @param category Categoria ("" para transações sem categoria)
+     */
+    @Modifying
+    @Query(value = "DELETE FROM monthly_summaries WHERE user_id = :userId AND month_start = :monthStart " +
+            "AND type = :type AND category = :category AND transaction_count = 0",
+            nativeQuery = true)
+    void deleteIfEmpty(
+            @Param("userId") Long userId,
+            @Param("monthStart") LocalDate monthStart,
+            @Param("type") String type,
+            @Param("category") String category
+    );
+
+    /**
+     * Apaga as linhas do usuário que ficaram sem transações (após deltas negativos em massa)
+     * @param userId ID do usuário
+     */
+    @Modifying
+    @Query("DELETE FROM MonthlySummary m WHERE m.user.id = :userId AND m.transactionCount = 0")
+    void deleteEmptyByUserId(@Param("userId") Long userId);
+
+    /**
+     * Soma total por tipo nos meses do intervalo (para dashboard)
+     * @param user Usuário proprietário
+     * @param type Tipo da transação (RECEITA/DESPESA)
+     * @param startMonth Primeiro dia do mês inicial
+     * @param endMonth Primeiro dia do mês final
+     * @return Soma total dos meses
+     */
+    @Query("SELECT COALESCE(SUM(m.totalAmount), 0) FROM MonthlySummary m " +
+            "WHERE m.user = :user AND m.type = :type AND " +
+            "m.monthStart BETWEEN :startMonth AND :endMonth")
+    BigDecimal sumAmountByUserAndTypeAndMonthBetween(
+            @Param("user") User user,
+            @Param("type") TransactionType type,
+            @Param("startMonth") LocalDate startMonth,
+            @Param("endMonth") LocalDate endMonth
+    );
+
+    @Modifying
+    @Query("DELETE FROM MonthlySummary m WHERE m.user.id = :userId")
+    void deleteByUserId(@Param("userId") Long userId);
+
+    /**
+     * Recalcula os totais mensais do usuário a partir das transações (backfill)
+     * @param userId ID do usuário
+     */
+    @Modifying
+    @Query(value = "INSERT INTO monthly_summaries (user_id, month_start, type, category, total_amount, transaction_count) " +
+            "SELECT t.user_id, DATE_FORMAT(t.transaction_date, '%Y-%m-01'), t.type, COALESCE(t.category, ''), " +
+            "SUM(t.amount), COUNT(*) FROM transactions t WHERE t.user_id = :userId " +
+            "GROUP BY t.user_id, DATE_FORMAT(t.transaction_date, '%Y-%m-01'), t.type, COALESCE(t.category, '')",
+            nativeQuery = true)
+    void rebuildForUser(@Param("userId") Long userId);
+}
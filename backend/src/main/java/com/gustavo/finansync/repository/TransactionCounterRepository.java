@@ -0,0 +1,52 @@
+package com.gustavo.finansync.repository;
+
+import com.gustavo.finansync.entity.TransactionCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * Repository para a quantidade de transações por usuário
+ */
+@Repository
+public interface TransactionCounterRepository extends JpaRepository<TransactionCounter, Long> {
+
+    /**
+     * Soma (ou subtrai, com valores negativos) um delta à quantidade do usuário, criando a linha se necessário
+     * @param userId ID do usuário
+     * @param delta Delta da quantidade de transações
+     */
+    @Modifying
+    @Query(value = "INSERT INTO transaction_counters (user_id, transaction_count) VALUES (:userId, :delta) " +
+            "ON DUPLICATE KEY UPDATE transaction_count = transaction_count + VALUES(transaction_count)",
+            nativeQuery = true)
+    void addDelta(@Param("userId") Long userId, @Param("delta") long delta);
+
+    /**
+     * Quantidade de transações do usuário (vazio se ele nunca teve transações)
+     * @param userId ID do usuário
+     */
+    @Query("SELECT c.transactionCount FROM TransactionCounter c WHERE c.userId = :userId")
+    Optional<Long> findCountByUserId(@Param("userId") Long userId);
+
+    /**
+     * Quantidade total de transações (soma de uma linha por usuário)
+     */
+    @Query("SELECT COALESCE(SUM(c.transactionCount), 0) FROM TransactionCounter c")
+    long sumAll();
+
+    /**
+     * Recalcula a quantidade do usuário a partir das transações
+     * @param userId ID do usuário
+     */
+    @Modifying
+    @Query(value = "INSERT INTO transaction_counters (user_id, transaction_count) " +
+            "SELECT :userId, COUNT(*) FROM transactions t WHERE t.user_id = :userId " +
+            "ON DUPLICATE KEY UPDATE transaction_count = VALUES(transaction_count)",
+            nativeQuery = true)
+    void rebuildForUser(@Param("userId") Long userId);
+}
@@ -1,20 +1,31 @@
 package com.gustavo.finansync.repository;
 
+import com.gustavo.finansync.dto.CategoryTotalDTO;
+import com.gustavo.finansync.dto.TransactionDTO;
 import com.gustavo.finansync.entity.Transaction;
 import com.gustavo.finansync.entity.TransactionType;
 import com.gustavo.finansync.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository para operações CRUD da entidade Transaction
@@ -23,37 +34,234 @@ import java.util.Optional;
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long>, JpaSpecificationExecutor<Transaction> {
 
+    // Filtros opcionais compartilhados pelas listagens (parâmetros nulos desativam o filtro)
+    String FILTRO_PERIODO =
+            "AND (:startDate IS NULL OR t.transactionDate >= :startDate) " +
+            "AND (:endDate IS NULL OR t.transactionDate <= :endDate) ";
+    String FILTRO_DESCRICAO_PERIODO =
+            "AND (:fullText IS NULL OR match_against(t.description, :fullText) > 0) " +
+            "AND (:like IS NULL OR LOWER(t.description) LIKE LOWER(CONCAT('%', :like, '%'))) " +
+            FILTRO_PERIODO;
+
+    // Listagens montam o DTO direto do SELECT: nenhuma entidade é instanciada, guardada no
+    // contexto de persistência ou copiada para o dirty checking, e o usuário (LAZY) não é tocado
+    String SELECT_DTO = "SELECT new com.gustavo.finansync.dto.TransactionDTO(" +
+            "t.id, t.description, t.category, t.amount, t.transactionDate, t.type, t.emailMessageId) " +
+            "FROM Transaction t ";
+
     Optional<Transaction> findByIdAndUser(Long id, User user);
 
 
     /**
-     * Busca transações de um usuário com paginação
+     * Busca paginada com filtro opcional de período.
+     * Parâmetros nulos desativam o filtro correspondente; a ordenação vem do Pageable.
      * @param user Usuário proprietário
+     * @param startDate Data inicial
+     * @param endDate Data final
      * @param pageable Configuração de paginação e ordenação
      * @return Página de transações
      */
-    Page<Transaction> findByUserOrderByTransactionDateDesc(User user, Pageable pageable);
+    @Query(value = SELECT_DTO + "WHERE t.user = :user " + FILTRO_PERIODO,
+            countQuery = "SELECT COUNT(t) FROM Transaction t WHERE t.user = :user " + FILTRO_PERIODO)
+    Page<TransactionDTO> findByPeriod(
+            @Param("user") User user,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            Pageable pageable
+    );
 
     /**
-     * Busca transações por usuário e tipo (RECEITA/DESPESA)
+     * Como {@link #findByPeriod}, sem COUNT: lê uma linha a mais para saber se existe próxima página
+     */
+    @Query(SELECT_DTO + "WHERE t.user = :user " + FILTRO_PERIODO)
+    Slice<TransactionDTO> sliceByPeriod(
+            @Param("user") User user,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            Pageable pageable
+    );
+
+    /**
+     * Busca uma página por cursor (keyset), sem COUNT e sem OFFSET.
+     * O custo não depende da profundidade: o banco posiciona direto em (transactionDate, id)
+     * do cursor e lê apenas as próximas linhas.
+     * Parâmetros nulos desativam o filtro correspondente.
      * @param user Usuário proprietário
-     * @param type Tipo da transação
-     * @param pageable Configuração de paginação
-     * @return Página de transações filtradas por tipo
+     * @param fullText Busca na descrição pelo índice FULLTEXT (ver DescriptionSearch)
+     * @param like Busca na descrição por LIKE, quando o índice não se aplica
+     * @param startDate Data inicial
+     * @param endDate Data final
+     * @param cursorDate Data da última transação da página anterior
+     * @param cursorId Id da última transação da página anterior
+     * @param limit Quantidade máxima de linhas
+     * @return Transações após o cursor
      */
-    Page<Transaction> findByUserAndTypeOrderByTransactionDateDesc(
-            User user, TransactionType type, Pageable pageable);
+    @Query(SELECT_DTO + "WHERE t.user = :user " + FILTRO_DESCRICAO_PERIODO +
+            "AND (:cursorDate IS NULL OR t.transactionDate < :cursorDate " +
+            "     OR (t.transactionDate = :cursorDate AND t.id < :cursorId)) " +
+            "ORDER BY t.transactionDate DESC, t.id DESC")
+    List<TransactionDTO> findPageAfterCursor(
+            @Param("user") User user,
+            @Param("fullText") String fullText,
+            @Param("like") String like,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            @Param("cursorDate") LocalDate cursorDate,
+            @Param("cursorId") Long cursorId,
+            Limit limit
+    );
+
+    /**
+     * Percorre as transações filtradas com um cursor do servidor, lendo fetchSize linhas por vez.
+     * O Stream deve ser consumido dentro de uma transação e fechado ao final.
+     * Parâmetros nulos desativam o filtro correspondente.
+     * @param user Usuário proprietário
+     * @param fullText Busca na descrição pelo índice FULLTEXT (ver DescriptionSearch)
+     * @param like Busca na descrição por LIKE, quando o índice não se aplica
+     * @param startDate Data inicial
+     * @param endDate Data final
+     * @return Stream de transações ordenadas por data decrescente
+     */
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = AvailableHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(SELECT_DTO + "WHERE t.user = :user " + FILTRO_DESCRICAO_PERIODO +
+            "ORDER BY t.transactionDate DESC, t.id DESC")
+    Stream<TransactionDTO> streamByFilter(
+            @Param("user") User user,
+            @Param("fullText") String fullText,
+            @Param("like") String like,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate
+    );
+
+    /**
+     * Busca paginada com filtros opcionais de descrição e período.
+     * Parâmetros nulos desativam o filtro correspondente; a ordenação vem do Pageable.
+     * @param user Usuário proprietário
+     * @param fullText Busca na descrição pelo índice FULLTEXT (ver DescriptionSearch)
+     * @param like Busca na descrição por LIKE, quando o índice não se aplica
+     * @param startDate Data inicial
+     * @param endDate Data final
+     * @param pageable Configuração de paginação e ordenação
+     * @return Página de transações filtradas
+     */
+    @Query(value = SELECT_DTO + "WHERE t.user = :user " + FILTRO_DESCRICAO_PERIODO,
+            countQuery = "SELECT COUNT(t) FROM Transaction t WHERE t.user = :user " + FILTRO_DESCRICAO_PERIODO)
+    Page<TransactionDTO> findByFilter(
+            @Param("user") User user,
+            @Param("fullText") String fullText,
+            @Param("like") String like,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            Pageable pageable
+    );
+
+    /**
+     * Como {@link #findByFilter}, sem COUNT: lê uma linha a mais para saber se existe próxima página
+     */
+    @Query(SELECT_DTO + "WHERE t.user = :user " + FILTRO_DESCRICAO_PERIODO)
+    Slice<TransactionDTO> sliceByFilter(
+            @Param("user") User user,
+            @Param("fullText") String fullText,
+            @Param("like") String like,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            Pageable pageable
+    );
 
     /**
-     * Busca transações por período
+     * Ids das transações filtradas, em ordem crescente a partir de afterId (seleção em blocos
+     * das operações em massa). Parâmetros nulos desativam o filtro correspondente.
      * @param user Usuário proprietário
+     * @param fullText Busca na descrição pelo índice FULLTEXT (ver DescriptionSearch)
+     * @param like Busca na descrição por LIKE, quando o índice não se aplica
      * @param startDate Data inicial
      * @param endDate Data final
+     * @param afterId Último id do bloco anterior (0 no primeiro bloco)
+     * @param limit Tamanho do bloco
+     * @return Ids do próximo bloco
+     */
+    @Query("SELECT t.id FROM Transaction t WHERE t.user = :user " + FILTRO_DESCRICAO_PERIODO +
+            "AND t.id > :afterId ORDER BY t.id")
+    List<Long> findIdsByFilter(
+            @Param("user") User user,
+            @Param("fullText") String fullText,
+            @Param("like") String like,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            @Param("afterId") Long afterId,
+            Limit limit
+    );
+
+    /**
+     * Altera a categoria das transações do usuário em um único UPDATE
+     * @param user Usuário proprietário (ids de outros usuários não são alterados)
+     * @param ids Transações a alterar
+     * @param category Nova categoria
+     * @param updatedAt Data da alteração (o UPDATE em massa não passa pela auditoria)
+     * @return Número de transações alteradas
+     */
+    @Modifying
+    @Query("UPDATE Transaction t SET t.category = :category, t.updatedAt = :updatedAt " +
+            "WHERE t.user = :user AND t.id IN :ids")
+    int updateCategoryByUserAndIdIn(
+            @Param("user") User user,
+            @Param("ids") Collection<Long> ids,
+            @Param("category") String category,
+            @Param("updatedAt") LocalDateTime updatedAt
+    );
+
+    /**
+     * Exclui as transações do usuário em um único DELETE
+     * @param user Usuário proprietário (ids de outros usuários não são excluídos)
+     * @param ids Transações a excluir
+     * @return Número de transações excluídas
+     */
+    @Modifying
+    @Query("DELETE FROM Transaction t WHERE t.user = :user AND t.id IN :ids")
+    int deleteByUserAndIdIn(@Param("user") User user, @Param("ids") Collection<Long> ids);
+
+    /**
+     * Busca textual na descrição ordenada por relevância (índice FULLTEXT)
+     * @param user Usuário proprietário
+     * @param fullText Expressão em boolean mode (ver DescriptionSearch)
+     * @param pageable Configuração de paginação (sem ordenação)
+     * @return Transações da mais para a menos relevante
+     */
+    @Query(value = SELECT_DTO + "WHERE t.user = :user " +
+            "AND match_against(t.description, :fullText) > 0 " +
+            "ORDER BY match_against(t.description, :fullText) DESC, t.transactionDate DESC, t.id DESC",
+            countQuery = "SELECT COUNT(t) FROM Transaction t WHERE t.user = :user " +
+            "AND match_against(t.description, :fullText) > 0")
+    Page<TransactionDTO> searchByRelevance(
+            @Param("user") User user,
+            @Param("fullText") String fullText,
+            Pageable pageable
+    );
+
+    /**
+     * Como {@link #searchByRelevance}, sem COUNT
+     */
+    @Query(SELECT_DTO + "WHERE t.user = :user " +
+            "AND match_against(t.description, :fullText) > 0 " +
+            "ORDER BY match_against(t.description, :fullText) DESC, t.transactionDate DESC, t.id DESC")
+    Slice<TransactionDTO> sliceByRelevance(
+            @Param("user") User user,
+            @Param("fullText") String fullText,
+            Pageable pageable
+    );
+
+    /**
+     * Busca transações por usuário e tipo (RECEITA/DESPESA)
+     * @param user Usuário proprietário
+     * @param type Tipo da transação
      * @param pageable Configuração de paginação
-     * @return Transações do período especificado
+     * @return Página de transações filtradas por tipo
      */
-    Page<Transaction> findByUserAndTransactionDateBetweenOrderByTransactionDateDesc(
-            User user, LocalDate startDate, LocalDate endDate, Pageable pageable);
+    Page<Transaction> findByUserAndTypeOrderByTransactionDateDesc(
+            User user, TransactionType type, Pageable pageable);
 
     /**
      * Busca transações por descrição (busca textual)
@@ -83,27 +291,29 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>,
             @Param("endDate") LocalDate endDate
     );
 
-    /*
     /**
-     * Agrupa transações por categoria para gráficos
+     * Agrupa transações por categoria para gráficos, em uma única passada GROUP BY.
+     * Atendida pelo índice (user_id, type, transaction_date, category, amount) sem ler a tabela.
+     * Datas nulas não limitam o período.
      * @param user Usuário proprietário
      * @param type Tipo da transação
      * @param startDate Data inicial
      * @param endDate Data final
-     * @return Lista com categoria e soma por categoria
+     * @return Soma e quantidade por categoria, da maior para a menor em valor absoluto
      */
-    /*@Query("SELECT c, COALESCE(SUM(t.amount), 0) FROM Transaction t " +
-            "JOIN t.category c " +
-            "WHERE t.user = :user AND t.type = :type AND " +
-            "t.transactionDate BETWEEN :startDate AND :endDate " +
-            "GROUP BY c " +
-            "ORDER BY SUM(t.amount) DESC")
-    List<Object[]> sumAmountByCategoryAndPeriod(
+    @Query("SELECT new com.gustavo.finansync.dto.CategoryTotalDTO(t.category, COALESCE(SUM(t.amount), 0), COUNT(t)) " +
+            "FROM Transaction t " +
+            "WHERE t.user = :user AND t.type = :type " +
+            "AND (:startDate IS NULL OR t.transactionDate >= :startDate) " +
+            "AND (:endDate IS NULL OR t.transactionDate <= :endDate) " +
+            "GROUP BY t.category " +
+            "ORDER BY ABS(SUM(t.amount)) DESC")
+    List<CategoryTotalDTO> sumAmountByCategoryAndPeriod(
             @Param("user") User user,
             @Param("type") TransactionType type,
             @Param("startDate") LocalDate startDate,
             @Param("endDate") LocalDate endDate
-    );*/
+    );
 
     /**
      * Verifica se existe transação importada de email específico
@@ -114,28 +324,43 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>,
     boolean existsByEmailMessageId(String emailMessageId);
 
     /**
-     * Conta total de transações do usuário
+     * Dentre as mensagens informadas, retorna as que já geraram transações para o usuário
+     * @param user Usuário proprietário
+     * @param emailMessageIds IDs de mensagens do Gmail
+     * @return IDs já importados
+     */
+    @Query("SELECT DISTINCT t.emailMessageId FROM Transaction t " +
+            "WHERE t.user = :user AND t.emailMessageId IN :emailMessageIds")
+    List<String> findImportedEmailMessageIds(
+            @Param("user") User user,
+            @Param("emailMessageIds") Collection<String> emailMessageIds
+    );
+
+    /**
+     * Impressões digitais das transações importadas do usuário num intervalo de datas
+     * (detecção de duplicatas em lote na importação)
      * @param user Usuário proprietário
-     * @return Número total de transações
+     * @param startDate Data inicial
+     * @param endDate Data final
+     * @return Fingerprints existentes no período
      */
-    long countByUser(User user);
+    @Query("SELECT t.fingerprint FROM Transaction t " +
+            "WHERE t.user = :user AND t.fingerprint IS NOT NULL AND " +
+            "t.transactionDate BETWEEN :startDate AND :endDate")
+    List<String> findFingerprintsByUserAndDateBetween(
+            @Param("user") User user,
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate
+    );
 
     // Filtrar por usuário, descrição e intervalo de datas
     Page<Transaction> findByUserAndDescriptionContainingIgnoreCaseAndTransactionDateBetweenOrderByTransactionDateDesc(
             User user, String description, LocalDate startDate, LocalDate endDate, Pageable pageable);
 
-    // Filtrar por usuário e data >= início
-    Page<Transaction> findByUserAndTransactionDateGreaterThanEqualOrderByTransactionDateDesc(
-            User user, LocalDate startDate, Pageable pageable);
-
     // Filtrar por usuário, descrição e data >= início
     Page<Transaction> findByUserAndDescriptionContainingIgnoreCaseAndTransactionDateGreaterThanEqualOrderByTransactionDateDesc(
             User user, String description, LocalDate startDate, Pageable pageable);
 
-    // Filtrar por usuário e data <= fim
-    Page<Transaction> findByUserAndTransactionDateLessThanEqualOrderByTransactionDateDesc(
-            User user, LocalDate endDate, Pageable pageable);
-
     // Filtrar por usuário, descrição e data <= fim
     Page<Transaction> findByUserAndDescriptionContainingIgnoreCaseAndTransactionDateLessThanEqualOrderByTransactionDateDesc(
             User user, String description, LocalDate endDate, Pageable pageable);
@@ -2,10 +2,13 @@ package com.gustavo.finansync.repository;
 
 import com.gustavo.finansync.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.util.Optional;
 
 /**
@@ -50,4 +53,34 @@ public interface UserRepository extends JpaRepository<User, Long> {
      */
     @Query("SELECT COUNT(u) FROM User u WHERE u.isActive = true")
     long countActiveUsers();
+
+    /**
+     * Atualiza apenas o hash da senha (rehash com novo custo do BCrypt),
+     * sem sobrescrever os demais campos do usuário.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.passwordHash = :passwordHash WHERE u.id = :id")
+    int updatePasswordHash(@Param("id") Long id, @Param("passwordHash") String passwordHash);
+
+    /**
+     * Registra o checkpoint pendente da sincronização do Gmail (última análise)
+     * @param syncedAt Momento em que o historyId foi lido
+     */
+    @Modifying
+    @Query("UPDATE User u SET u.gmailPendingSyncQuery = :query, u.gmailPendingHistoryId = :historyId, " +
+            "u.gmailPendingSyncedAt = :syncedAt WHERE u.id = :id")
+    int updateGmailPendingCheckpoint(@Param("id") Long id, @Param("query") String query, @Param("historyId") Long historyId,
+                                     @Param("syncedAt") Instant syncedAt);
+
+    /**
+     * Torna o checkpoint pendente o checkpoint da sincronização do Gmail, alterando apenas as colunas gmail_*
+     * @return 0 se não havia checkpoint pendente
+     */
+    @Modifying
+    @Query("UPDATE User u SET u.gmailSyncQuery = u.gmailPendingSyncQuery, u.gmailHistoryId = u.gmailPendingHistoryId, " +
+            "u.gmailSyncedAt = u.gmailPendingSyncedAt, " +
+            "u.gmailPendingSyncQuery = NULL, u.gmailPendingHistoryId = NULL, u.gmailPendingSyncedAt = NULL " +
+            "WHERE u.id = :id AND u.gmailPendingHistoryId IS NOT NULL")
+    int confirmGmailCheckpoint(@Param("id") Long id);
 }
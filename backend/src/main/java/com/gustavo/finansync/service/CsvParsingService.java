@@ -1,58 +1,343 @@
 package com.gustavo.finansync.service;
 
 import com.gustavo.finansync.dto.TransactionDTO;
-import com.gustavo.finansync.entity.TransactionType;
-import com.opencsv.CSVReader;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.math.BigDecimal;
-import java.nio.charset.StandardCharsets;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class CsvParsingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CsvParsingService.class);
+
+    // Limites do tamanho de cada bloco do parse paralelo: blocos pequenos demais só geram
+    // overhead de tarefa; grandes demais seguram muitas transações em memória até a entrega
+    private static final long TAMANHO_MINIMO_BLOCO = 256 * 1024;
+    private static final long TAMANHO_MAXIMO_BLOCO = 8 * 1024 * 1024;
+    private static final int TAMANHO_LEITURA = 8 * 1024;
+
+    private final MeterRegistry meterRegistry;
+    private final ForkJoinPool pool;
+    private final FormatoExtratoRegistry formatos;
+    private final Counter linhasConvertidas;
+    private final Counter linhasIgnoradas;
+    private final Counter linhasInvalidas;
+    private final Counter bytesLidos;
+
+    public CsvParsingService(MeterRegistry meterRegistry, FormatoExtratoRegistry formatos,
+                             @Value("${finansync.import.parse-parallelism:0}") int parallelism) {
+        this.meterRegistry = meterRegistry;
+        this.formatos = formatos;
+        // 0 = um worker por núcleo
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors(),
+                p -> {
+                    var thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+                    thread.setName("csv-parse-" + thread.getPoolIndex());
+                    thread.setDaemon(true);
+                    return thread;
+                }, null, false);
+        new ExecutorServiceMetrics(pool, "csv-parse", Tags.empty()).bindTo(meterRegistry);
+        this.linhasConvertidas = contadorLinhas(meterRegistry, "parsed");
+        this.linhasIgnoradas = contadorLinhas(meterRegistry, "skipped");
+        this.linhasInvalidas = contadorLinhas(meterRegistry, "invalid");
+        this.bytesLidos = Counter.builder("finansync.csv.bytes")
+                .description("Bytes de extratos CSV lidos")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private static Counter contadorLinhas(MeterRegistry meterRegistry, String resultado) {
+        return Counter.builder("finansync.csv.rows")
+                .description("Linhas de extratos CSV processadas, por resultado")
+                .tag("result", resultado)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Lê o extrato de forma preguiçosa: cada linha só é decodificada quando o consumidor
+     * do Stream pede o próximo elemento, então o uso de memória não depende do tamanho do arquivo.
+     * O formato é detectado pelo início do arquivo antes de o Stream ser devolvido.
+     * O Stream deve ser fechado (try-with-resources) para liberar o arquivo.
+     * @param csvInputStream Conteúdo do extrato
+     * @return Stream de transações na ordem do arquivo
+     * @throws IllegalArgumentException se o arquivo não corresponder a nenhum formato conhecido
+     *         (a entrada é fechada)
+     */
+    public Stream<TransactionDTO> streamCsv(InputStream csvInputStream) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        ContadorBytes entrada = new ContadorBytes(csvInputStream);
+        BufferedInputStream buffered = new BufferedInputStream(entrada, FormatoExtratoRegistry.TAMANHO_AMOSTRA);
+        LayoutExtrato layout;
+        try {
+            layout = detectar(buffered);
+        } catch (IOException e) {
+            fecharSilenciosamente(buffered);
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            fecharSilenciosamente(buffered);
+            throw e;
+        }
+        BufferedReader reader = new BufferedReader(new InputStreamReader(buffered, layout.charset()));
+        return reader.lines()
+                .skip(layout.linhasAntesDosDados())
+                .map(line -> parseLinha(layout, line))
+                .filter(Objects::nonNull)
+                .onClose(() -> {
+                    // Tempo e bytes do arquivo, do início da leitura até o fechamento do Stream
+                    sample.stop(meterRegistry.timer("finansync.csv.parse"));
+                    bytesLidos.increment(entrada.lidos);
+                    try {
+                        reader.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    /**
+     * Entrega cada transação ao consumidor assim que ela é decodificada.
+     * @param csvInputStream Conteúdo do extrato
+     * @param consumer Destino de cada transação
+     * @return Número de transações entregues
+     */
+    public long parseCsv(InputStream csvInputStream, Consumer<TransactionDTO> consumer) {
+        long total = 0;
+        try (Stream<TransactionDTO> transactions = streamCsv(csvInputStream)) {
+            for (TransactionDTO dto : (Iterable<TransactionDTO>) transactions::iterator) {
+                consumer.accept(dto);
+                total++;
+            }
+        }
+        logger.debug("Total de transações parseadas: {}", total);
+        return total;
+    }
+
     public List<TransactionDTO> parseCsv(InputStream csvInputStream) throws Exception {
+        try (Stream<TransactionDTO> transactions = streamCsv(csvInputStream)) {
+            return transactions.collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Analisa um extrato já gravado em disco usando todos os workers do pool.
+     * O arquivo é dividido em blocos terminados em quebra de linha; cada bloco é mapeado em memória
+     * e convertido em paralelo com as mesmas regras de {@link #streamCsv(InputStream)}, e as transações
+     * são entregues ao consumidor na ordem do arquivo. No máximo duas vezes o número de workers em
+     * blocos ficam em andamento, então a memória não depende do tamanho do extrato.
+     * As linhas são separadas por \n (com ou sem \r antes).
+     * @param arquivo Extrato CSV
+     * @param consumer Destino de cada transação, chamado sempre na thread de quem invocou o método
+     * @return Número de transações entregues
+     * @throws IllegalArgumentException se o arquivo não corresponder a nenhum formato conhecido
+     */
+    public long parseArquivo(Path arquivo, Consumer<TransactionDTO> consumer) throws IOException {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        long total = 0;
+        Deque<ForkJoinTask<List<TransactionDTO>>> pendentes = new ArrayDeque<>();
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            long tamanho = canal.size();
+            LayoutExtrato layout = detectar(canal, tamanho);
+            long inicio = inicioDaLinha(canal, 0, layout.linhasAntesDosDados(), tamanho);
+            long tamanhoBloco = Math.min(TAMANHO_MAXIMO_BLOCO,
+                    Math.max(TAMANHO_MINIMO_BLOCO, (tamanho - inicio) / (pool.getParallelism() * 4L)));
+            int janela = pool.getParallelism() * 2;
+
+            while (inicio < tamanho || !pendentes.isEmpty()) {
+                while (inicio < tamanho && pendentes.size() < janela) {
+                    long fim = inicioDaLinha(canal, Math.min(tamanho, inicio + tamanhoBloco), 1, tamanho);
+                    long blocoInicio = inicio;
+                    pendentes.add(pool.submit(() -> parseBloco(layout, canal, blocoInicio, fim)));
+                    inicio = fim;
+                }
+                for (TransactionDTO dto : pendentes.poll().join()) {
+                    consumer.accept(dto);
+                    total++;
+                }
+            }
+            bytesLidos.increment(tamanho);
+        } finally {
+            // Consumidor falhou (ex.: cliente desconectou): os blocos restantes são descartados
+            pendentes.forEach(tarefa -> tarefa.cancel(false));
+            sample.stop(meterRegistry.timer("finansync.csv.parse"));
+        }
+        logger.debug("Total de transações parseadas em paralelo: {}", total);
+        return total;
+    }
+
+    /**
+     * Detecta o formato do extrato sem ler as transações.
+     * @throws IllegalArgumentException se o arquivo não corresponder a nenhum formato conhecido
+     */
+    public FormatoExtrato detectarFormato(Path arquivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            return detectar(canal, canal.size()).formato();
+        }
+    }
+
+    private LayoutExtrato detectar(FileChannel canal, long tamanho) throws IOException {
+        ByteBuffer amostra = ByteBuffer.allocate((int) Math.min(tamanho, FormatoExtratoRegistry.TAMANHO_AMOSTRA));
+        while (amostra.hasRemaining()) {
+            if (canal.read(amostra, amostra.position()) <= 0) break;
+        }
+        return formatos.detectar(amostra.array(), amostra.position(), amostra.position() == tamanho);
+    }
+
+    private LayoutExtrato detectar(BufferedInputStream entrada) throws IOException {
+        entrada.mark(FormatoExtratoRegistry.TAMANHO_AMOSTRA);
+        byte[] amostra = entrada.readNBytes(FormatoExtratoRegistry.TAMANHO_AMOSTRA);
+        entrada.reset();
+        return formatos.detectar(amostra, amostra.length, amostra.length < FormatoExtratoRegistry.TAMANHO_AMOSTRA);
+    }
+
+    private static void fecharSilenciosamente(InputStream entrada) {
+        try {
+            entrada.close();
+        } catch (IOException e) {
+            logger.debug("Erro ao fechar o extrato: {}", e.getMessage());
+        }
+    }
+
+    private List<TransactionDTO> parseBloco(LayoutExtrato layout, FileChannel canal, long inicio, long fim) {
+        MappedByteBuffer bloco;
+        try {
+            bloco = canal.map(FileChannel.MapMode.READ_ONLY, inicio, fim - inicio);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
         List<TransactionDTO> transactions = new ArrayList<>();
-        BufferedReader reader = new BufferedReader(new InputStreamReader(csvInputStream, StandardCharsets.UTF_8));
-        String line;
-        int lineNumber = 0;
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
-        while ((line = reader.readLine()) != null) {
-            lineNumber++;
-            // Pule as 5 primeiras linhas (4 metadados + 1 cabeçalho)
-            if (lineNumber <= 6) continue;
-            if (line.trim().isEmpty()) continue;
-            String[] fields = line.split(";");
-            if (fields.length < 5) continue;
-            try {
-                String dataStr = fields[0].trim();
-                String historico = fields[1].trim();
-                String descricao = fields[2].trim();
-                String valorStr = fields[3].replace(".", "").replace(",", ".").trim();
-                String fullDescription = historico + " - " + descricao;
-                LocalDate date = LocalDate.parse(dataStr, formatter);
-                BigDecimal amount = new BigDecimal(valorStr);
-                TransactionType type = amount.signum() >= 0 ? TransactionType.RECEITA : TransactionType.DESPESA;
-                transactions.add(new TransactionDTO(
-                        null, // id
-                        fullDescription,
-                        null,
-                        amount,
-                        date,
-                        type
-                ));
-            } catch (Exception e) {
-                System.out.println("Erro ao processar linha: " + line);
-                e.printStackTrace();
+        byte[] linha = new byte[256];
+        int limite = bloco.limit();
+        int inicioLinha = 0;
+        for (int i = 0; i <= limite; i++) {
+            if (i < limite && bloco.get(i) != '\n') continue;
+            int fimLinha = i;
+            if (fimLinha > inicioLinha && bloco.get(fimLinha - 1) == '\r') fimLinha--;
+            // Depois do último \n do bloco não há linha
+            if (i < limite || fimLinha > inicioLinha) {
+                int n = fimLinha - inicioLinha;
+                if (n > linha.length) linha = new byte[Math.max(n, linha.length * 2)];
+                bloco.get(inicioLinha, linha, 0, n);
+                TransactionDTO dto = parseLinha(layout, new String(linha, 0, n, layout.charset()));
+                if (dto != null) transactions.add(dto);
             }
+            inicioLinha = i + 1;
         }
-        System.out.println("Total de transações parseadas: " + transactions.size());
         return transactions;
     }
+
+    /**
+     * Posição logo após a n-ésima quebra de linha a partir de {@code posicao} (ou o fim do arquivo).
+     */
+    private static long inicioDaLinha(FileChannel canal, long posicao, int linhas, long tamanho) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(TAMANHO_LEITURA);
+        while (linhas > 0 && posicao < tamanho) {
+            buffer.clear();
+            int lidos = canal.read(buffer, posicao);
+            if (lidos <= 0) return tamanho;
+            for (int i = 0; i < lidos; i++) {
+                if (buffer.get(i) == '\n' && --linhas == 0) return posicao + i + 1;
+            }
+            posicao += lidos;
+        }
+        return Math.min(posicao, tamanho);
+    }
+
+    /**
+     * Converte uma linha do extrato em transação.
+     * Linhas no formato comum passam pelo {@link LinhaExtratoDecoder}; as demais pelo caminho tradicional.
+     * @return null quando a linha deve ser ignorada
+     */
+    TransactionDTO parseLinha(LayoutExtrato layout, String line) {
+        TransactionDTO dto = layout.decodificar(line);
+        if (dto != null) {
+            linhasConvertidas.increment();
+            return dto;
+        }
+        return parseLinhaPadrao(layout, line);
+    }
+
+    /**
+     * Conversão com split, replace e DateTimeFormatter, usada para linhas fora do formato comum
+     * (em branco, com campos faltando ou entre aspas, valores ou datas incomuns).
+     * @return null quando a linha deve ser ignorada
+     */
+    TransactionDTO parseLinhaPadrao(LayoutExtrato layout, String line) {
+        if (line.trim().isEmpty()) {
+            linhasIgnoradas.increment();
+            return null;
+        }
+        String[] fields = layout.campos(line);
+        if (fields.length < layout.minimoCampos()) {
+            linhasIgnoradas.increment();
+            return null;
+        }
+        try {
+            TransactionDTO dto = layout.converter(fields);
+            linhasConvertidas.increment();
+            return dto;
+        } catch (RuntimeException e) {
+            // Sem stack trace: o formato já foi validado na detecção, então são linhas isoladas
+            linhasInvalidas.increment();
+            logger.debug("Linha inválida ignorada ({}): {}", e.getMessage(), line);
+            return null;
+        }
+    }
+
+    // Conta os bytes lidos do extrato
+    private static final class ContadorBytes extends FilterInputStream {
+        private long lidos;
+
+        ContadorBytes(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) lidos++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) lidos += n;
+            return n;
+        }
+    }
 }
@@ -0,0 +1,41 @@
+package com.gustavo.finansync.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Traduz o texto digitado na busca por descrição para o índice FULLTEXT.
+ * Cada palavra vira um termo obrigatório com prefixo ("+uber*"), então "ube mer" encontra
+ * "UBER TRIP MERCADO". Palavras menores que o tamanho mínimo indexado pelo MySQL
+ * (innodb_ft_min_token_size, 3 por padrão) não existem no índice; nesse caso a busca
+ * volta para o LIKE, que é lento mas preserva o resultado.
+ * @param fullText Expressão para MATCH ... AGAINST em boolean mode (null se não aplicável)
+ * @param like Texto para o LIKE '%x%' (null se a busca usa o índice)
+ */
+public record DescriptionSearch(String fullText, String like) {
+
+    private static final int TAMANHO_MINIMO_TERMO = 3;
+    private static final DescriptionSearch VAZIA = new DescriptionSearch(null, null);
+
+    public static DescriptionSearch of(String description) {
+        if (description == null || description.isBlank()) return VAZIA;
+
+        // Operadores do boolean mode (+ - < > ( ) ~ * " @) viram separadores
+        String[] palavras = description.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+");
+        List<String> termos = new ArrayList<>();
+        for (String palavra : palavras) {
+            if (palavra.isEmpty()) continue;
+            if (palavra.length() < TAMANHO_MINIMO_TERMO) {
+                return new DescriptionSearch(null, description.trim());
+            }
+            termos.add("+" + palavra + "*");
+        }
+        if (termos.isEmpty()) return new DescriptionSearch(null, description.trim());
+        return new DescriptionSearch(String.join(" ", termos), null);
+    }
+
+    public boolean isEmpty() {
+        return fullText == null && like == null;
+    }
+}
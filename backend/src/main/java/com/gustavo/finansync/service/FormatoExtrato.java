@@ -0,0 +1,45 @@
+package com.gustavo.finansync.service;
+
+import java.util.List;
+
+/**
+ * Descreve o layout do extrato CSV de um banco. Os nomes das colunas são comparados com o
+ * cabeçalho do arquivo já normalizados (minúsculas, sem acentos); uma coluna do arquivo
+ * corresponde ao nome esperado quando é igual a ele ou começa com ele seguido de espaço
+ * ("data lancamento" corresponde a "data"). As colunas podem aparecer em qualquer ordem.
+ *
+ * @param nome Identificação do formato (logs e mensagens de erro)
+ * @param separador Separador de campos
+ * @param colunas Colunas esperadas no cabeçalho
+ * @param colunaData Coluna com a data do lançamento
+ * @param padraoData Padrão da data (DateTimeFormatter)
+ * @param colunasDescricao Colunas que formam a descrição, unidas por " - "
+ * @param colunaValor Coluna com o valor
+ * @param separadorDecimal ',' para valores como 1.234,56 ou '.' para 1,234.56
+ * @param inverterSinal true quando o arquivo traz despesas como valores positivos (faturas de cartão)
+ * @param linhasPreambulo Para arquivos sem cabeçalho reconhecível: quantidade fixa de linhas antes
+ *                        dos dados, com as colunas na ordem de {@code colunas}; -1 quando não se aplica
+ */
+public record FormatoExtrato(
+        String nome,
+        char separador,
+        List<String> colunas,
+        String colunaData,
+        String padraoData,
+        List<String> colunasDescricao,
+        String colunaValor,
+        char separadorDecimal,
+        boolean inverterSinal,
+        int linhasPreambulo
+) {
+    public FormatoExtrato {
+        colunas = List.copyOf(colunas);
+        colunasDescricao = List.copyOf(colunasDescricao);
+        if (!colunas.contains(colunaData) || !colunas.contains(colunaValor) || !colunas.containsAll(colunasDescricao)) {
+            throw new IllegalArgumentException("Formato " + nome + ": colunas de data, valor e descrição devem estar no cabeçalho");
+        }
+        if (separadorDecimal != ',' && separadorDecimal != '.') {
+            throw new IllegalArgumentException("Formato " + nome + ": separador decimal deve ser ',' ou '.'");
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.gustavo.finansync.service;
+
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Formatos de extrato conhecidos (declarados como beans de {@link FormatoExtrato}) e a detecção
+ * do formato de um arquivo. A detecção olha apenas o início do arquivo, numa única passada:
+ * escolhe o charset, procura a linha de cabeçalho de algum formato e resolve as posições das
+ * colunas. Arquivos que não correspondem a nenhum formato são recusados antes da leitura das linhas.
+ */
+@Component
+public class FormatoExtratoRegistry {
+
+    // Bytes do início do arquivo usados na detecção
+    static final int TAMANHO_AMOSTRA = 8 * 1024;
+    // Exportações de planilhas no Brasil costumam vir em Windows-1252 quando não são UTF-8
+    private static final Charset WINDOWS_1252 = Charset.forName("windows-1252");
+
+    private final List<FormatoExtrato> formatos;
+
+    public FormatoExtratoRegistry(List<FormatoExtrato> formatos) {
+        this.formatos = List.copyOf(formatos);
+    }
+
+    public List<FormatoExtrato> getFormatos() {
+        return formatos;
+    }
+
+    /**
+     * Detecta charset e formato a partir do início do arquivo.
+     * @param amostra Primeiros bytes do arquivo
+     * @param tamanho Bytes válidos na amostra
+     * @param completa true quando a amostra contém o arquivo inteiro
+     * @throws IllegalArgumentException se nenhum formato corresponder ao arquivo
+     */
+    LayoutExtrato detectar(byte[] amostra, int tamanho, boolean completa) {
+        Charset charset = detectarCharset(amostra, tamanho, completa);
+        List<String> linhas = linhasCompletas(new String(amostra, 0, tamanho, charset), completa);
+
+        // A primeira linha que for o cabeçalho de algum formato define o layout
+        for (int i = 0; i < linhas.size(); i++) {
+            for (FormatoExtrato formato : formatos) {
+                LayoutExtrato layout = porCabecalho(formato, charset, linhas.get(i), i + 1);
+                if (layout != null) return layout;
+            }
+        }
+        // Formatos com preâmbulo fixo: aceitos se a primeira linha após o preâmbulo for uma transação
+        for (FormatoExtrato formato : formatos) {
+            int preambulo = formato.linhasPreambulo();
+            if (preambulo < 0 || linhas.size() <= preambulo) continue;
+            int[] posicoes = IntStream.range(0, formato.colunas().size()).toArray();
+            LayoutExtrato layout = new LayoutExtrato(formato, charset, preambulo, posicoes, posicoes.length);
+            if (converte(layout, linhas.get(preambulo))) return layout;
+        }
+        throw new IllegalArgumentException("Formato de extrato não reconhecido. Formatos aceitos: "
+                + formatos.stream().map(FormatoExtrato::nome).collect(Collectors.joining(", ")));
+    }
+
+    private static LayoutExtrato porCabecalho(FormatoExtrato formato, Charset charset, String linha, int linhasAntesDosDados) {
+        String[] colunasArquivo = LayoutExtrato.dividir(linha, formato.separador());
+        for (int i = 0; i < colunasArquivo.length; i++) {
+            colunasArquivo[i] = normalizar(colunasArquivo[i]);
+        }
+        List<String> esperadas = formato.colunas();
+        int[] posicoes = new int[esperadas.size()];
+        boolean[] usadas = new boolean[colunasArquivo.length];
+        for (int j = 0; j < esperadas.size(); j++) {
+            posicoes[j] = -1;
+            String nome = esperadas.get(j);
+            for (int i = 0; i < colunasArquivo.length; i++) {
+                if (!usadas[i] && (colunasArquivo[i].equals(nome) || colunasArquivo[i].startsWith(nome + " "))) {
+                    usadas[i] = true;
+                    posicoes[j] = i;
+                    break;
+                }
+            }
+            if (posicoes[j] < 0) return null;
+        }
+        return new LayoutExtrato(formato, charset, linhasAntesDosDados, posicoes, colunasArquivo.length);
+    }
+
+    private static boolean converte(LayoutExtrato layout, String linha) {
+        if (layout.decodificar(linha) != null) return true;
+        String[] campos = layout.campos(linha);
+        if (campos.length < layout.minimoCampos()) return false;
+        try {
+            layout.converter(campos);
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    // BOM ou UTF-8 válido: UTF-8; qualquer sequência inválida indica um charset de um byte
+    private static Charset detectarCharset(byte[] amostra, int tamanho, boolean completa) {
+        if (tamanho >= 3 && amostra[0] == (byte) 0xEF && amostra[1] == (byte) 0xBB && amostra[2] == (byte) 0xBF) {
+            return StandardCharsets.UTF_8;
+        }
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        // Sem endOfInput, um caractere cortado no fim da amostra não conta como erro
+        boolean valido = !decoder.decode(ByteBuffer.wrap(amostra, 0, tamanho), CharBuffer.allocate(tamanho), completa).isError();
+        return valido ? StandardCharsets.UTF_8 : WINDOWS_1252;
+    }
+
+    // Descarta a última linha da amostra quando ela pode ter sido cortada
+    private static List<String> linhasCompletas(String texto, boolean completa) {
+        if (!completa) {
+            int fim = Math.max(texto.lastIndexOf('\n'), texto.lastIndexOf('\r'));
+            texto = texto.substring(0, fim + 1);
+        }
+        return texto.lines().toList();
+    }
+
+    private static String normalizar(String coluna) {
+        return Normalizer.normalize(coluna, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .replace("\uFEFF", "")
+                .trim()
+                .toLowerCase(Locale.ROOT);
+    }
+}
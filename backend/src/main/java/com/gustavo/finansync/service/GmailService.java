@@ -1,19 +1,134 @@
 package com.gustavo.finansync.service;
 
+import com.google.api.client.googleapis.batch.BatchRequest;
+import com.google.api.client.googleapis.batch.json.JsonBatchCallback;
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpResponseException;
 import com.google.api.services.gmail.Gmail;
 import com.google.api.services.gmail.model.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayInputStream;
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class GmailService {
 
-    public GmailService() {}
+    private static final Logger logger = LoggerFactory.getLogger(GmailService.class);
+
+    // Limite recomendado pela API do Gmail para requisições em um mesmo lote
+    private static final int TAMANHO_LOTE = 50;
+    private static final long MENSAGENS_POR_PAGINA = 500L;
+    // Resposta parcial: só o necessário para localizar os anexos
+    private static final String CAMPOS_MENSAGEM = "id,payload(parts(filename,body/attachmentId))";
+    private static final long ATRASO_MAXIMO_MS = 32_000L;
+    // Motivos do 403 que o Gmail usa para limite de taxa (os demais 403 são definitivos)
+    private static final Set<String> MOTIVOS_LIMITE = Set.of("rateLimitExceeded", "userRateLimitExceeded");
+
+    private final ExecutorService executor;
+    private final MeterRegistry meterRegistry;
+    private final int concorrenciaPorUsuario;
+    private final int maxRetentativas;
+    private final Duration atrasoInicial;
+    // Chamadas em andamento por usuário; a entrada sai do mapa quando a última termina
+    private final Map<String, LimiteUsuario> limites = new ConcurrentHashMap<>();
+
+    public GmailService(@Value("${finansync.gmail.fetch-threads:8}") int fetchThreads,
+                        @Value("${finansync.gmail.fetch-concurrency-per-user:4}") int concorrenciaPorUsuario,
+                        @Value("${finansync.gmail.max-retries:5}") int maxRetentativas,
+                        @Value("${finansync.gmail.retry-initial-delay:1s}") Duration atrasoInicial,
+                        MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.concorrenciaPorUsuario = concorrenciaPorUsuario;
+        this.maxRetentativas = maxRetentativas;
+        this.atrasoInicial = atrasoInicial;
+        AtomicInteger contador = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(fetchThreads, r -> {
+            java.lang.Thread thread = new java.lang.Thread(r, "gmail-fetch-" + contador.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        new ExecutorServiceMetrics(executor, "gmail-fetch", Tags.empty()).bindTo(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Anexo CSV baixado do Gmail, com o id da mensagem de origem.
+     * O conteúdo fica num arquivo temporário até ser lido: {@link #conteudo()} abre o arquivo e
+     * o apaga ao fechar o stream; {@link #descartar()} apaga anexos que não chegaram a ser lidos.
+     */
+    public record AnexoCsv(String messageId, String filename, Path arquivo) {
+
+        public InputStream conteudo() throws IOException {
+            return Files.newInputStream(arquivo, StandardOpenOption.DELETE_ON_CLOSE);
+        }
+
+        public void descartar() {
+            try {
+                Files.deleteIfExists(arquivo);
+            } catch (IOException e) {
+                logger.warn("Não foi possível apagar o anexo temporário {}: {}", arquivo, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Apaga os arquivos temporários dos anexos (os já lidos são ignorados).
+     */
+    public static void descartar(List<AnexoCsv> anexos) {
+        for (AnexoCsv anexo : anexos) {
+            anexo.descartar();
+        }
+    }
+
+    /**
+     * Monta a busca do Gmail usada para localizar os extratos.
+     */
+    public String montarQuery(String remetente, String assunto) {
+        return "from:" + remetente + " subject:\"" + assunto + "\" has:attachment";
+    }
 
     /**
      * Busca anexos CSV em e-mails do Gmail usando critérios de remetente e assunto.
@@ -21,29 +136,456 @@ public class GmailService {
      * @param userId ID do usuário ("me" para o próprio usuário autenticado)
      * @param remetente E-mail do remetente (ex: banco)
      * @param assunto Assunto do e-mail (ex: "Extrato Mensal")
-     * @return Lista de InputStream dos arquivos CSV encontrados
-     */
-    public List<InputStream> buscarAnexosCsv(Gmail gmail, String userId, String remetente, String assunto) throws Exception {
-        List<InputStream> anexos = new ArrayList<>();
-        String query = "from:" + remetente + " subject:\"" + assunto + "\" has:attachment";
-        ListMessagesResponse response = gmail.users().messages().list(userId).setQ(query).execute();
-
-        if (response.getMessages() == null) return anexos;
-
-        for (Message msg : response.getMessages()) {
-            Message message = gmail.users().messages().get(userId, msg.getId()).setFormat("full").execute();
-            List<MessagePart> parts = message.getPayload().getParts();
-            if (parts == null) continue;
-            for (MessagePart part : parts) {
-                if (part.getFilename() != null && part.getFilename().endsWith(".csv")) {
-                    String attId = part.getBody().getAttachmentId();
-                    MessagePartBody attachPart = gmail.users().messages().attachments()
-                            .get(userId, msg.getId(), attId).execute();
-                    byte[] fileByteArray = Base64.getDecoder().decode(attachPart.getData());
-                    anexos.add(new ByteArrayInputStream(fileByteArray));
+     * @return Anexos CSV encontrados
+     */
+    public List<AnexoCsv> buscarAnexosCsv(Gmail gmail, String userId, String remetente, String assunto) throws Exception {
+        return buscarAnexosCsv(gmail, userId, listarMensagens(gmail, userId, montarQuery(remetente, assunto)));
+    }
+
+    /**
+     * Baixa os anexos CSV das mensagens informadas.
+     * Obtém as mensagens em lotes (endpoint batch do Gmail) e baixa os anexos em paralelo
+     * num pool limitado, preservando a ordem das mensagens.
+     * @param gmail Objeto Gmail autenticado para o usuário
+     * @param userId ID do usuário ("me" para o próprio usuário autenticado)
+     * @param ids Ids das mensagens a processar
+     * @return Anexos CSV encontrados
+     */
+    public List<AnexoCsv> buscarAnexosCsv(Gmail gmail, String userId, List<String> ids) throws Exception {
+        return buscarAnexosCsv(gmail, userId, userId, ids, ImportProgress.NENHUM);
+    }
+
+    /**
+     * Igual a {@link #buscarAnexosCsv(Gmail, String, List)}, informando o andamento a cada lote
+     * de mensagens lido e a cada anexo baixado.
+     * No máximo finansync.gmail.fetch-concurrency-per-user requisições do mesmo usuário ficam no pool
+     * ao mesmo tempo, somando as sincronizações simultâneas dele; as demais esperam uma terminar.
+     * Se uma requisição falha, as pendentes são canceladas e os anexos já baixados, apagados.
+     * @param usuario Identifica o dono da caixa no limite de concorrência (ex: e-mail)
+     */
+    public List<AnexoCsv> buscarAnexosCsv(Gmail gmail, String userId, String usuario, List<String> ids,
+                                          ImportProgress progresso) throws Exception {
+        Busca busca = new Busca(limites.compute(usuario, (chave, atual) ->
+                (atual != null ? atual : new LimiteUsuario(concorrenciaPorUsuario)).reservar()));
+        List<Future<List<Message>>> lotes = new ArrayList<>();
+        List<Future<AnexoCsv>> downloads = new ArrayList<>();
+        try {
+            for (int i = 0; i < ids.size(); i += TAMANHO_LOTE) {
+                List<String> lote = ids.subList(i, Math.min(i + TAMANHO_LOTE, ids.size()));
+                lotes.add(submeter(busca, () -> buscarMensagensEmLote(gmail, userId, lote)));
+            }
+
+            for (Future<List<Message>> lote : lotes) {
+                List<Message> mensagens = aguardar(lote);
+                progresso.mensagensLidas(mensagens.size());
+                for (Message message : mensagens) {
+                    if (message.getPayload() == null) continue;
+                    List<MessagePart> parts = message.getPayload().getParts();
+                    if (parts == null) continue;
+                    for (MessagePart part : parts) {
+                        if (part.getFilename() != null && part.getFilename().endsWith(".csv")) {
+                            String messageId = message.getId();
+                            String filename = part.getFilename();
+                            String attId = part.getBody().getAttachmentId();
+                            downloads.add(submeter(busca, () -> {
+                                Path arquivo = baixarAnexo(gmail, userId, messageId, attId);
+                                if (java.lang.Thread.currentThread().isInterrupted()) {
+                                    // Cancelado enquanto baixava: ninguém vai ler o arquivo
+                                    Files.deleteIfExists(arquivo);
+                                    throw new InterruptedIOException("Download do anexo cancelado");
+                                }
+                                progresso.anexoBaixado();
+                                return new AnexoCsv(messageId, filename, arquivo);
+                            }));
+                        }
+                    }
+                }
+            }
+
+            List<AnexoCsv> anexos = new ArrayList<>(downloads.size());
+            for (Future<AnexoCsv> download : downloads) {
+                anexos.add(aguardar(download));
+            }
+            return anexos;
+        } catch (Exception e) {
+            // Não deixa lotes e downloads ocupando o pool (e a cota do Gmail) para um resultado descartado
+            lotes.forEach(future -> future.cancel(true));
+            downloads.forEach(future -> future.cancel(true));
+            // Apaga o que já foi baixado antes de propagar a falha
+            for (Future<AnexoCsv> download : downloads) {
+                if (download.isCancelled()) continue;
+                try {
+                    download.get().descartar();
+                } catch (Exception ignorada) {
+                    // download que também falhou: não há arquivo
                 }
             }
+            throw e;
+        } finally {
+            limites.computeIfPresent(usuario, (chave, atual) -> atual.liberar() ? null : atual);
+        }
+    }
+
+    /**
+     * Envia a tarefa ao pool quando o usuário tem uma vaga; bloqueia quem chama até lá.
+     * A vaga é devolvida quando a tarefa termina, falha ou é cancelada (mesmo antes de começar).
+     * Se outra tarefa da mesma busca já falhou, lança a falha em vez de enviar mais trabalho: a
+     * tarefa que falha devolve a vaga, então quem estava bloqueado acorda e vê a falha na hora.
+     */
+    private <T> Future<T> submeter(Busca busca, Callable<T> tarefa) throws Exception {
+        Semaphore permissoes = busca.limite.permissoes;
+        permissoes.acquire();
+        Throwable falha = busca.falha;
+        if (falha != null) {
+            permissoes.release();
+            throw falha instanceof Exception causa ? causa : new ExecutionException(falha);
+        }
+        FutureTask<T> future = new FutureTask<>(tarefa) {
+            @Override
+            protected void setException(Throwable t) {
+                busca.falha = t;
+                super.setException(t);
+            }
+
+            @Override
+            protected void done() {
+                permissoes.release();
+            }
+        };
+        try {
+            executor.execute(future);
+        } catch (RejectedExecutionException e) {
+            permissoes.release();
+            throw e;
+        }
+        return future;
+    }
+
+    /**
+     * Estado de uma chamada a buscarAnexosCsv: a vaga do usuário e a primeira falha de suas tarefas.
+     */
+    private static final class Busca {
+
+        private final LimiteUsuario limite;
+        private volatile Throwable falha;
+
+        Busca(LimiteUsuario limite) {
+            this.limite = limite;
+        }
+    }
+
+    private static final class LimiteUsuario {
+
+        private final Semaphore permissoes;
+        // Alterado só dentro de compute/computeIfPresent do mapa
+        private int chamadas;
+
+        LimiteUsuario(int concorrencia) {
+            this.permissoes = new Semaphore(concorrencia);
+        }
+
+        LimiteUsuario reservar() {
+            chamadas++;
+            return this;
+        }
+
+        boolean liberar() {
+            return --chamadas == 0;
+        }
+    }
+
+    /**
+     * Lista os ids de todas as mensagens da busca, seguindo o nextPageToken.
+     */
+    public List<String> listarMensagens(Gmail gmail, String userId, String query) throws IOException {
+        List<String> ids = new ArrayList<>();
+        String pageToken = null;
+        do {
+            String pagina = pageToken;
+            ListMessagesResponse response = comRetentativas("messages.list", () -> gmail.users().messages().list(userId)
+                    .setQ(query)
+                    .setMaxResults(MENSAGENS_POR_PAGINA)
+                    .setFields("messages/id,nextPageToken")
+                    .setPageToken(pagina)
+                    .execute());
+            if (response.getMessages() != null) {
+                for (Message msg : response.getMessages()) {
+                    ids.add(msg.getId());
+                }
+            }
+            pageToken = response.getNextPageToken();
+        } while (pageToken != null);
+        return ids;
+    }
+
+    /**
+     * Lista os ids das mensagens que chegaram na caixa desde o historyId informado.
+     * @return Ids das mensagens adicionadas, ou null se o historyId expirou e é preciso uma busca completa
+     */
+    public Set<String> listarMensagensAdicionadas(Gmail gmail, String userId, BigInteger startHistoryId) throws IOException {
+        Set<String> ids = new HashSet<>();
+        String pageToken = null;
+        try {
+            do {
+                String pagina = pageToken;
+                ListHistoryResponse response = comRetentativas("history.list", () -> gmail.users().history().list(userId)
+                        .setStartHistoryId(startHistoryId)
+                        .setHistoryTypes(List.of("messageAdded"))
+                        .setMaxResults(MENSAGENS_POR_PAGINA)
+                        .setFields("history/messagesAdded/message/id,nextPageToken")
+                        .setPageToken(pagina)
+                        .execute());
+                if (response.getHistory() != null) {
+                    for (History history : response.getHistory()) {
+                        if (history.getMessagesAdded() == null) continue;
+                        for (HistoryMessageAdded added : history.getMessagesAdded()) {
+                            ids.add(added.getMessage().getId());
+                        }
+                    }
+                }
+                pageToken = response.getNextPageToken();
+            } while (pageToken != null);
+        } catch (GoogleJsonResponseException e) {
+            if (e.getStatusCode() == 404) return null;
+            throw e;
+        }
+        return ids;
+    }
+
+    /**
+     * Retorna o historyId atual da caixa de correio.
+     */
+    public BigInteger obterHistoryIdAtual(Gmail gmail, String userId) throws IOException {
+        return comRetentativas("profile.get", () -> gmail.users().getProfile(userId).setFields("historyId").execute())
+                .getHistoryId();
+    }
+
+    /**
+     * Obtém as mensagens informadas numa única requisição HTTP ao endpoint batch.
+     * Itens recusados por limite de taxa (429, 403 rateLimitExceeded) ou erro do servidor são
+     * reenviados num novo lote, com o mesmo backoff das demais chamadas.
+     */
+    private List<Message> buscarMensagensEmLote(Gmail gmail, String userId, List<String> ids) throws IOException {
+        Message[] mensagens = new Message[ids.size()];
+        List<Integer> pendentes = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            pendentes.add(i);
+        }
+        for (int tentativa = 1; ; tentativa++) {
+            List<Integer> lote = pendentes;
+            List<Integer> recusadas = new ArrayList<>();
+            comRetentativas("messages.batchGet", () -> {
+                recusadas.clear();
+                List<String> erros = new ArrayList<>();
+                BatchRequest batch = gmail.batch();
+                for (int posicao : lote) {
+                    gmail.users().messages().get(userId, ids.get(posicao))
+                            .setFormat("full")
+                            .setFields(CAMPOS_MENSAGEM)
+                            .queue(batch, new JsonBatchCallback<Message>() {
+                                @Override
+                                public void onSuccess(Message message, HttpHeaders responseHeaders) {
+                                    mensagens[posicao] = message;
+                                }
+
+                                @Override
+                                public void onFailure(GoogleJsonError e, HttpHeaders responseHeaders) {
+                                    if (retentavel(e.getCode(), e)) {
+                                        recusadas.add(posicao);
+                                    } else {
+                                        erros.add(ids.get(posicao) + ": " + e.getMessage());
+                                    }
+                                }
+                            });
+                }
+                batch.execute();
+                if (!erros.isEmpty()) {
+                    throw new IOException("Falha ao obter mensagens do Gmail: " + erros);
+                }
+                return null;
+            });
+            if (recusadas.isEmpty()) {
+                return Arrays.asList(mensagens);
+            }
+            if (tentativa > maxRetentativas) {
+                throw new IOException("Gmail recusou " + recusadas.size() + " mensagens após "
+                        + maxRetentativas + " novas tentativas");
+            }
+            esperarRetentativa("messages.batchGet", tentativa);
+            pendentes = recusadas;
+        }
+    }
+
+    /**
+     * Baixa o anexo para um arquivo temporário.
+     * O campo data (base64 URL-safe) é decodificado direto da resposta HTTP para o arquivo por um
+     * decoder em stream, sem materializar o JSON, o texto base64 nem os bytes do anexo em memória.
+     */
+    private Path baixarAnexo(Gmail gmail, String userId, String messageId, String attachmentId) throws IOException {
+        return comRetentativas("attachments.get", () -> {
+            Path arquivo = Files.createTempFile("finansync-anexo-", ".csv");
+            try (InputStream resposta = gmail.users().messages().attachments()
+                         .get(userId, messageId, attachmentId)
+                         .setFields("data")
+                         .executeAsInputStream();
+                 // O Gmail usa o alfabeto URL-safe ('-' e '_'), que o decoder padrão rejeita
+                 InputStream conteudo = Base64.getUrlDecoder().wrap(new CampoJsonStream(resposta, "data"))) {
+                Files.copy(conteudo, arquivo, StandardCopyOption.REPLACE_EXISTING);
+                return arquivo;
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(arquivo);
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * Executa a chamada com {@link #medir}, repetindo-a com backoff exponencial (com jitter) enquanto
+     * o Gmail responder limite de taxa ou erro do servidor, até finansync.gmail.max-retries vezes.
+     */
+    private <T> T comRetentativas(String operacao, ChamadaGmail<T> chamada) throws IOException {
+        for (int tentativa = 1; ; tentativa++) {
+            try {
+                return medir(operacao, chamada);
+            } catch (GoogleJsonResponseException e) {
+                if (tentativa > maxRetentativas || !retentavel(e.getStatusCode(), e.getDetails())) throw e;
+                logger.debug("Gmail respondeu {} em {}; nova tentativa {} de {}",
+                        e.getStatusCode(), operacao, tentativa, maxRetentativas);
+            } catch (HttpResponseException e) {
+                if (tentativa > maxRetentativas || !retentavel(e.getStatusCode(), null)) throw e;
+                logger.debug("Gmail respondeu {} em {}; nova tentativa {} de {}",
+                        e.getStatusCode(), operacao, tentativa, maxRetentativas);
+            }
+            esperarRetentativa(operacao, tentativa);
+        }
+    }
+
+    /**
+     * 429 e 5xx são temporários; 403 só quando o motivo é limite de taxa.
+     */
+    private static boolean retentavel(int status, GoogleJsonError erro) {
+        if (status == 429 || status >= 500) return true;
+        if (status != 403 || erro == null || erro.getErrors() == null) return false;
+        return erro.getErrors().stream().anyMatch(info -> MOTIVOS_LIMITE.contains(info.getReason()));
+    }
+
+    /**
+     * Espera entre metade e o total de atrasoInicial * 2^(tentativa - 1), limitado a 32 s.
+     */
+    private void esperarRetentativa(String operacao, int tentativa) throws InterruptedIOException {
+        meterRegistry.counter("finansync.gmail.retries", "operation", operacao).increment();
+        long teto = Math.min(atrasoInicial.toMillis() << Math.min(tentativa - 1, 16), ATRASO_MAXIMO_MS);
+        long atraso = teto / 2 + ThreadLocalRandom.current().nextLong(teto / 2 + 1);
+        try {
+            java.lang.Thread.sleep(atraso);
+        } catch (InterruptedException e) {
+            java.lang.Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrompido aguardando nova tentativa ao Gmail");
+        }
+    }
+
+    /**
+     * Executa uma chamada à API do Gmail registrando o tempo em finansync.gmail.requests,
+     * com as tags operation e outcome (SUCCESS, CLIENT_ERROR, SERVER_ERROR ou IO_ERROR).
+     */
+    private <T> T medir(String operacao, ChamadaGmail<T> chamada) throws IOException {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "SUCCESS";
+        try {
+            return chamada.executar();
+        } catch (HttpResponseException e) {
+            outcome = e.getStatusCode() >= 500 ? "SERVER_ERROR" : "CLIENT_ERROR";
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            outcome = "IO_ERROR";
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("finansync.gmail.requests")
+                    .description("Chamadas à API do Gmail")
+                    .tag("operation", operacao)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+    }
+
+    @FunctionalInterface
+    private interface ChamadaGmail<T> {
+        T executar() throws IOException;
+    }
+
+    /**
+     * Expõe, como stream de bytes, o valor string de um campo de uma resposta JSON.
+     * Serve para valores base64, que não contêm aspas nem escapes: lê até a aspa de fechamento.
+     */
+    private static final class CampoJsonStream extends InputStream {
+
+        private final InputStream in;
+        private final byte[] chave;
+        private boolean posicionado;
+        private boolean fim;
+
+        CampoJsonStream(InputStream in, String campo) {
+            this.in = new BufferedInputStream(in);
+            this.chave = ("\"" + campo + "\"").getBytes(StandardCharsets.US_ASCII);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] um = new byte[1];
+            return read(um, 0, 1) == -1 ? -1 : um[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int off, int len) throws IOException {
+            if (fim) return -1;
+            posicionar();
+            if (len == 0) return 0;
+            int lidos = in.read(buffer, off, len);
+            if (lidos == -1) throw new EOFException("Resposta do Gmail terminou antes do fim do campo");
+            for (int i = off; i < off + lidos; i++) {
+                if (buffer[i] == '"') {
+                    fim = true;
+                    return i == off ? -1 : i - off;
+                }
+                if (buffer[i] == '\\') throw new IOException("Escape inesperado no conteúdo do anexo");
+            }
+            return lidos;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        // Avança até o início do valor: "campo" <espaços> : <espaços> "
+        private void posicionar() throws IOException {
+            if (posicionado) return;
+            int casados = 0;
+            while (casados < chave.length) {
+                int b = in.read();
+                if (b == -1) throw new IOException("Campo ausente na resposta do Gmail");
+                casados = b == chave[casados] ? casados + 1 : (b == chave[0] ? 1 : 0);
+            }
+            int b = pularEspacos();
+            if (b != ':') throw new IOException("Resposta do Gmail em formato inesperado");
+            if (pularEspacos() != '"') throw new IOException("Resposta do Gmail em formato inesperado");
+            posicionado = true;
+        }
+
+        private int pularEspacos() throws IOException {
+            int b;
+            do {
+                b = in.read();
+            } while (b == ' ' || b == '\n' || b == '\r' || b == '\t');
+            return b;
+        }
+    }
+
+    private static <T> T aguardar(Future<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
         }
-        return anexos;
     }
 }
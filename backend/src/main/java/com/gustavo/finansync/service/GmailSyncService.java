@@ -0,0 +1,225 @@
+package com.gustavo.finansync.service;
+
+import com.google.api.services.gmail.Gmail;
+import com.gustavo.finansync.dto.TransactionDTO;
+import com.gustavo.finansync.entity.GmailPendingMessage;
+import com.gustavo.finansync.entity.User;
+import com.gustavo.finansync.repository.GmailPendingMessageRepository;
+import com.gustavo.finansync.repository.TransactionRepository;
+import com.gustavo.finansync.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Sincronização incremental dos extratos do Gmail.
+ * Guarda no usuário o historyId da caixa na última importação confirmada, para que as
+ * análises seguintes só baixem mensagens que chegaram depois dela e ainda não foram importadas.
+ * As mensagens adicionadas segundo o histórico são filtradas pela busca restrita às recebidas
+ * desde o checkpoint (after:), sem listar de novo todas as mensagens da busca.
+ * Cada análise registra um checkpoint pendente e as mensagens encontradas; mensagens cujos anexos
+ * não renderam nenhuma transação saem da lista assim que o parse termina. A confirmação avança o
+ * checkpoint, e as mensagens que ficaram de fora da importação continuam pendentes: a análise
+ * seguinte as baixa de novo junto com as que chegaram depois do checkpoint.
+ */
+@Service
+public class GmailSyncService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GmailSyncService.class);
+    private static final String USER_ID = "me";
+    // Tamanho máximo da lista usada na cláusula IN ao consultar mensagens já importadas
+    private static final int TAMANHO_LOTE_IN = 1000;
+    // Recuo do after: em relação ao checkpoint, para mensagens cuja data de recebimento no Gmail
+    // é um pouco anterior à chegada na caixa (a lista do histórico continua limitando o resultado)
+    private static final Duration MARGEM_CHECKPOINT = Duration.ofDays(1);
+
+    private final GmailService gmailService;
+    private final TransactionRepository transactionRepository;
+    private final UserRepository userRepository;
+    private final GmailPendingMessageRepository gmailPendingMessageRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public GmailSyncService(GmailService gmailService, TransactionRepository transactionRepository,
+                            UserRepository userRepository, GmailPendingMessageRepository gmailPendingMessageRepository,
+                            TransactionTemplate transactionTemplate) {
+        this.gmailService = gmailService;
+        this.transactionRepository = transactionRepository;
+        this.userRepository = userRepository;
+        this.gmailPendingMessageRepository = gmailPendingMessageRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Busca os anexos CSV ainda não importados pelo usuário.
+     * Com um checkpoint válido para a mesma busca, consulta apenas o histórico da caixa desde ele;
+     * sem novidades, retorna sem nenhum download.
+     * @param gmail Objeto Gmail autenticado para o usuário
+     * @param user Usuário dono da caixa
+     * @param remetente E-mail do remetente (ex: banco)
+     * @param assunto Assunto do e-mail (ex: "Extrato Mensal")
+     * @return Anexos das mensagens novas
+     */
+    public List<GmailService.AnexoCsv> buscarNovosAnexos(Gmail gmail, User user, String remetente, String assunto) throws Exception {
+        return buscarNovosAnexos(gmail, user, remetente, assunto, ImportProgress.NENHUM);
+    }
+
+    /**
+     * Igual a {@link #buscarNovosAnexos(Gmail, User, String, String)}, informando o andamento.
+     */
+    public List<GmailService.AnexoCsv> buscarNovosAnexos(Gmail gmail, User user, String remetente, String assunto,
+                                                         ImportProgress progresso) throws Exception {
+        String query = gmailService.montarQuery(remetente, assunto);
+        Instant lidoEm = Instant.now();
+        BigInteger historyAtual = gmailService.obterHistoryIdAtual(gmail, USER_ID);
+
+        Set<String> adicionadas = null;
+        if (query.equals(user.getGmailSyncQuery()) && user.getGmailHistoryId() != null) {
+            adicionadas = gmailService.listarMensagensAdicionadas(
+                    gmail, USER_ID, BigInteger.valueOf(user.getGmailHistoryId()));
+            if (adicionadas == null) {
+                logger.info("Histórico do Gmail expirado para {}; executando busca completa.", user.getEmail());
+            }
+        }
+
+        List<String> ids;
+        if (adicionadas == null) {
+            ids = gmailService.listarMensagens(gmail, USER_ID, query);
+        } else {
+            ids = adicionadas.isEmpty() ? new ArrayList<>()
+                    : gmailService.listarMensagens(gmail, USER_ID, recebidasDesde(query, user.getGmailSyncedAt()));
+            ids.retainAll(adicionadas);
+            // Mensagens de análises anteriores da mesma busca que ainda não foram importadas
+            if (user.getGmailPendingSyncQuery() == null || query.equals(user.getGmailPendingSyncQuery())) {
+                Set<String> candidatas = new LinkedHashSet<>(ids);
+                candidatas.addAll(gmailPendingMessageRepository.findMessageIdsByUserId(user.getId()));
+                ids = new ArrayList<>(candidatas);
+            }
+        }
+        ids = removerJaImportadas(user, ids);
+
+        logger.debug("Sincronização do Gmail para {}: {} mensagens novas.", user.getEmail(), ids.size());
+        progresso.mensagensEncontradas(ids.size());
+        List<GmailService.AnexoCsv> anexos = ids.isEmpty() ? List.of()
+                : gmailService.buscarAnexosCsv(gmail, USER_ID, user.getEmail(), ids, progresso);
+        registrarPendente(user, query, historyAtual, lidoEm, anexos);
+        return anexos;
+    }
+
+    // Checkpoints anteriores à V9 não têm o momento da leitura: a busca fica sem o after:
+    private static String recebidasDesde(String query, Instant checkpoint) {
+        if (checkpoint == null) return query;
+        return query + " after:" + checkpoint.minus(MARGEM_CHECKPOINT).getEpochSecond();
+    }
+
+    /**
+     * Avança o checkpoint para o estado registrado na última análise.
+     * As mensagens da análise que a importação confirmada não cobre (linhas desmarcadas na revisão)
+     * continuam pendentes e voltam na análise seguinte, sem segurar o checkpoint.
+     * @param user Usuário que confirmou a importação
+     * @param mensagensConfirmadas emailMessageId das transações confirmadas (inclusive as duplicadas)
+     */
+    @Transactional
+    public void confirmarSincronizacao(User user, Collection<String> mensagensConfirmadas) {
+        Long userId = user.getId();
+        removerPendentes(userId, mensagensConfirmadas);
+        gmailPendingMessageRepository.deleteImportedByUserId(userId);
+        long restantes = gmailPendingMessageRepository.countByUserId(userId);
+        if (restantes > 0) {
+            logger.info("Sincronização do Gmail de {}: {} mensagens da análise não foram importadas e voltam na próxima.",
+                    user.getEmail(), restantes);
+        }
+        userRepository.confirmGmailCheckpoint(userId);
+    }
+
+    /**
+     * Retira das mensagens pendentes as que não renderam nenhuma transação no parse (anexos fora
+     * dos formatos conhecidos ou extratos sem lançamentos), que nenhuma importação cobriria.
+     * Se não sobra nenhuma mensagem para revisar, o checkpoint avança na hora.
+     * @param user Usuário dono da análise
+     * @param mensagens Mensagens cujos anexos foram lidos até o fim sem nenhuma transação
+     */
+    @Transactional
+    public void descartarMensagensSemTransacoes(User user, Collection<String> mensagens) {
+        if (mensagens.isEmpty()) return;
+        Long userId = user.getId();
+        removerPendentes(userId, mensagens);
+        if (gmailPendingMessageRepository.countByUserId(userId) == 0) {
+            userRepository.confirmGmailCheckpoint(userId);
+        }
+    }
+
+    /**
+     * Repassa as transações do iterador, anotando em mensagens o emailMessageId de cada uma
+     * (para {@link #confirmarSincronizacao}).
+     */
+    public static Iterator<TransactionDTO> registrandoMensagens(Iterator<TransactionDTO> transactions, Set<String> mensagens) {
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return transactions.hasNext();
+            }
+
+            @Override
+            public TransactionDTO next() {
+                TransactionDTO dto = transactions.next();
+                if (dto.emailMessageId() != null) mensagens.add(dto.emailMessageId());
+                return dto;
+            }
+        };
+    }
+
+    private void removerPendentes(Long userId, Collection<String> mensagens) {
+        List<String> lista = new ArrayList<>(mensagens);
+        for (int i = 0; i < lista.size(); i += TAMANHO_LOTE_IN) {
+            gmailPendingMessageRepository.deleteByUserIdAndMessageIdIn(
+                    userId, lista.subList(i, Math.min(i + TAMANHO_LOTE_IN, lista.size())));
+        }
+    }
+
+    private List<String> removerJaImportadas(User user, List<String> ids) {
+        Set<String> importadas = new HashSet<>();
+        for (int i = 0; i < ids.size(); i += TAMANHO_LOTE_IN) {
+            importadas.addAll(transactionRepository.findImportedEmailMessageIds(
+                    user, ids.subList(i, Math.min(i + TAMANHO_LOTE_IN, ids.size()))));
+        }
+        if (importadas.isEmpty()) return ids;
+        List<String> novas = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            if (!importadas.contains(id)) novas.add(id);
+        }
+        return novas;
+    }
+
+    // Substitui o checkpoint e as mensagens pendentes pelos desta análise (apenas mensagens com extrato).
+    // Sem nenhuma mensagem para revisar, o checkpoint já avança.
+    private void registrarPendente(User user, String query, BigInteger historyAtual, Instant lidoEm,
+                                   List<GmailService.AnexoCsv> anexos) {
+        if (historyAtual == null) return;
+        Set<String> mensagens = new LinkedHashSet<>();
+        for (GmailService.AnexoCsv anexo : anexos) {
+            mensagens.add(anexo.messageId());
+        }
+        Long userId = user.getId();
+        transactionTemplate.executeWithoutResult(status -> {
+            gmailPendingMessageRepository.deleteByUserId(userId);
+            gmailPendingMessageRepository.saveAll(mensagens.stream()
+                    .map(messageId -> new GmailPendingMessage(userId, messageId))
+                    .toList());
+            userRepository.updateGmailPendingCheckpoint(userId, query, historyAtual.longValue(), lidoEm);
+            if (mensagens.isEmpty()) userRepository.confirmGmailCheckpoint(userId);
+        });
+    }
+}
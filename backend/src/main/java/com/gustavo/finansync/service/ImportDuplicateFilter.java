@@ -0,0 +1,97 @@
+package com.gustavo.finansync.service;
+
+import com.gustavo.finansync.entity.Transaction;
+import com.gustavo.finansync.entity.User;
+import com.gustavo.finansync.repository.TransactionRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Detecta em lote as linhas de uma importação que já existem no banco.
+ * Os fingerprints existentes são carregados por intervalo de datas e mantidos em memória;
+ * cada bloco só consulta a parte da janela de datas que ainda não foi carregada, então o
+ * extrato inteiro é coberto por poucas consultas de intervalo e um hash join em memória.
+ * As ocorrências de linhas iguais são numeradas por extrato de origem (emailMessageId), então
+ * o mesmo lançamento presente em dois extratos da importação (períodos sobrepostos) recebe o
+ * mesmo fingerprint e só é salvo uma vez.
+ * Uma instância atende a uma única importação.
+ */
+class ImportDuplicateFilter {
+
+    private final TransactionRepository transactionRepository;
+    private final User user;
+    private final Set<String> existentes = new HashSet<>();
+    // Por extrato de origem: chave da linha -> ocorrências já vistas
+    private final Map<String, Map<String, Integer>> ocorrencias = new HashMap<>();
+    private LocalDate inicioCarregado;
+    private LocalDate fimCarregado;
+    private long duplicadas;
+
+    ImportDuplicateFilter(TransactionRepository transactionRepository, User user) {
+        this.transactionRepository = transactionRepository;
+        this.user = user;
+    }
+
+    /**
+     * Calcula o fingerprint de cada transação do bloco e remove as que já foram importadas.
+     * @param chunk Transações do bloco, na ordem do extrato (alterado no lugar)
+     */
+    void filtrar(List<Transaction> chunk) {
+        if (chunk.isEmpty()) return;
+        LocalDate min = null;
+        LocalDate max = null;
+        for (Transaction t : chunk) {
+            String chave = TransactionFingerprint.chave(user.getId(), t.getTransactionDate(), t.getAmount(), t.getDescription());
+            Map<String, Integer> doExtrato = ocorrencias.computeIfAbsent(t.getEmailMessageId(), id -> new HashMap<>());
+            t.setFingerprint(TransactionFingerprint.of(chave, doExtrato.merge(chave, 1, Integer::sum)));
+            LocalDate date = t.getTransactionDate();
+            if (min == null || date.isBefore(min)) min = date;
+            if (max == null || date.isAfter(max)) max = date;
+        }
+        cobrir(min, max);
+
+        List<Transaction> novas = new ArrayList<>(chunk.size());
+        for (Transaction t : chunk) {
+            // add também marca as linhas desta importação, já vistas em outro extrato
+            if (existentes.add(t.getFingerprint())) {
+                novas.add(t);
+            } else {
+                duplicadas++;
+            }
+        }
+        chunk.clear();
+        chunk.addAll(novas);
+    }
+
+    long getDuplicadas() {
+        return duplicadas;
+    }
+
+    // Garante que os fingerprints de [min, max] estejam carregados
+    private void cobrir(LocalDate min, LocalDate max) {
+        if (inicioCarregado == null) {
+            carregar(min, max);
+            inicioCarregado = min;
+            fimCarregado = max;
+            return;
+        }
+        if (min.isBefore(inicioCarregado)) {
+            carregar(min, inicioCarregado.minusDays(1));
+            inicioCarregado = min;
+        }
+        if (max.isAfter(fimCarregado)) {
+            carregar(fimCarregado.plusDays(1), max);
+            fimCarregado = max;
+        }
+    }
+
+    private void carregar(LocalDate inicio, LocalDate fim) {
+        existentes.addAll(transactionRepository.findFingerprintsByUserAndDateBetween(user, inicio, fim));
+    }
+}
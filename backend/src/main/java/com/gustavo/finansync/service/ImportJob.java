@@ -0,0 +1,143 @@
+package com.gustavo.finansync.service;
+
+import com.gustavo.finansync.dto.ImportJobDTO;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Estado de uma importação em segundo plano: contadores de andamento, resultado em arquivo
+ * temporário e os clientes SSE que acompanham o job.
+ */
+class ImportJob implements ImportProgress {
+
+    enum Status { PENDENTE, EM_ANDAMENTO, CONCLUIDO, FALHOU }
+
+    // Intervalo mínimo entre eventos de progresso enviados aos clientes SSE
+    private static final long INTERVALO_NOTIFICACAO_NANOS = 250_000_000L;
+
+    private final String id;
+    private final Long userId;
+    private final AtomicLong mensagensLidas = new AtomicLong();
+    private final AtomicLong anexosBaixados = new AtomicLong();
+    private final AtomicLong linhasProcessadas = new AtomicLong();
+    private final AtomicLong ultimaNotificacao = new AtomicLong();
+    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+    private volatile Status status = Status.PENDENTE;
+    private volatile Integer mensagensEncontradas;
+    private volatile String erro;
+    private volatile Path resultado;
+
+    ImportJob(String id, Long userId) {
+        this.id = id;
+        this.userId = userId;
+    }
+
+    String getId() { return id; }
+    Long getUserId() { return userId; }
+    Status getStatus() { return status; }
+    Path getResultado() { return resultado; }
+
+    ImportJobDTO toDTO() {
+        return new ImportJobDTO(id, status.name(), mensagensEncontradas, mensagensLidas.get(),
+                anexosBaixados.get(), linhasProcessadas.get(), erro);
+    }
+
+    @Override
+    public void mensagensEncontradas(int total) {
+        mensagensEncontradas = total;
+        notificar(true);
+    }
+
+    @Override
+    public void mensagensLidas(int quantidade) {
+        mensagensLidas.addAndGet(quantidade);
+        notificar(false);
+    }
+
+    @Override
+    public void anexoBaixado() {
+        anexosBaixados.incrementAndGet();
+        notificar(false);
+    }
+
+    @Override
+    public void linhasProcessadas(long quantidade) {
+        linhasProcessadas.addAndGet(quantidade);
+        notificar(false);
+    }
+
+    void iniciar() {
+        status = Status.EM_ANDAMENTO;
+        notificar(true);
+    }
+
+    void concluir(Path arquivo) {
+        resultado = arquivo;
+        status = Status.CONCLUIDO;
+        finalizar();
+    }
+
+    void falhar(String motivo) {
+        erro = motivo;
+        status = Status.FALHOU;
+        finalizar();
+    }
+
+    boolean terminado() {
+        return status == Status.CONCLUIDO || status == Status.FALHOU;
+    }
+
+    /**
+     * Registra um cliente SSE. Se o job já terminou, envia o estado final e encerra o stream.
+     */
+    void acompanhar(SseEmitter emitter) {
+        emitters.add(emitter);
+        emitter.onCompletion(() -> emitters.remove(emitter));
+        emitter.onTimeout(() -> emitters.remove(emitter));
+        if (!enviar(emitter, "progress")) return;
+        if (terminado() && emitters.remove(emitter)) {
+            enviar(emitter, status.name().toLowerCase());
+            emitter.complete();
+        }
+    }
+
+    private void finalizar() {
+        String evento = status.name().toLowerCase();
+        for (SseEmitter emitter : emitters) {
+            if (emitters.remove(emitter) && enviar(emitter, evento)) {
+                emitter.complete();
+            }
+        }
+    }
+
+    // Envia o estado atual; eventos intermediários são limitados a alguns por segundo
+    private void notificar(boolean forcar) {
+        if (emitters.isEmpty()) return;
+        long agora = System.nanoTime();
+        long anterior = ultimaNotificacao.get();
+        if (!forcar && (agora - anterior < INTERVALO_NOTIFICACAO_NANOS
+                || !ultimaNotificacao.compareAndSet(anterior, agora))) {
+            return;
+        }
+        for (SseEmitter emitter : emitters) {
+            enviar(emitter, "progress");
+        }
+    }
+
+    private boolean enviar(SseEmitter emitter, String evento) {
+        try {
+            emitter.send(SseEmitter.event().name(evento).data(toDTO()));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            // Cliente desconectado
+            emitters.remove(emitter);
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package com.gustavo.finansync.service;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.google.api.services.gmail.Gmail;
+import com.gustavo.finansync.dto.ImportJobDTO;
+import com.gustavo.finansync.dto.TransactionDTO;
+import com.gustavo.finansync.entity.User;
+import com.gustavo.finansync.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Executa as análises de extratos do Gmail em segundo plano.
+ * A requisição recebe o id do job na hora; busca, downloads e parse rodam num pool próprio
+ * e limitado, e o andamento pode ser consultado ou acompanhado por SSE. As transações analisadas
+ * ficam num arquivo temporário até a confirmação ou até o job expirar.
+ */
+@Service
+public class ImportJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportJobService.class);
+    // Linhas processadas entre duas atualizações do contador de progresso
+    private static final int LINHAS_POR_ATUALIZACAO = 500;
+
+    private final GmailAuthService gmailAuthService;
+    private final GmailSyncService gmailSyncService;
+    private final CsvParsingService csvParsingService;
+    private final TransactionService transactionService;
+    private final UserRepository userRepository;
+    private final ObjectMapper objectMapper;
+    private final ThreadPoolExecutor executor;
+    private final Cache<String, ImportJob> jobs;
+    private final Duration jobTtl;
+
+    public ImportJobService(GmailAuthService gmailAuthService, GmailSyncService gmailSyncService,
+                            CsvParsingService csvParsingService, TransactionService transactionService,
+                            UserRepository userRepository, ObjectMapper objectMapper,
+                            @Value("${finansync.import.job-threads:2}") int threads,
+                            @Value("${finansync.import.job-queue-capacity:20}") int queueCapacity,
+                            @Value("${finansync.import.job-ttl:30m}") Duration jobTtl) {
+        this.gmailAuthService = gmailAuthService;
+        this.gmailSyncService = gmailSyncService;
+        this.csvParsingService = csvParsingService;
+        this.transactionService = transactionService;
+        this.userRepository = userRepository;
+        this.objectMapper = objectMapper;
+        this.jobTtl = jobTtl;
+
+        AtomicInteger contador = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread thread = new Thread(r, "import-job-" + contador.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        // Jobs terminados há mais que o TTL são descartados junto com o arquivo de resultado
+        this.jobs = Caffeine.newBuilder()
+                .expireAfter(new ExpiraAposTermino(jobTtl))
+                // Remove (e apaga o arquivo) no vencimento, mesmo sem outros acessos ao cache
+                .scheduler(Scheduler.systemScheduler())
+                .removalListener((String id, ImportJob job, RemovalCause causa) -> {
+                    // REPLACED: o próprio job reinserido ao terminar (ver executar)
+                    if (job != null && causa != RemovalCause.REPLACED) apagarResultado(job);
+                })
+                .build();
+    }
+
+    /**
+     * Jobs em andamento não expiram, por mais que demorem ou que ninguém consulte o status.
+     * O TTL conta a partir do término, quando o job é reinserido no cache; consultas não o renovam.
+     */
+    private static final class ExpiraAposTermino implements Expiry<String, ImportJob> {
+
+        private final long ttlNanos;
+
+        ExpiraAposTermino(Duration ttl) {
+            this.ttlNanos = ttl.toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(String id, ImportJob job, long currentTime) {
+            return job.terminado() ? ttlNanos : Long.MAX_VALUE;
+        }
+
+        @Override
+        public long expireAfterUpdate(String id, ImportJob job, long currentTime, long currentDuration) {
+            return expireAfterCreate(id, job, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String id, ImportJob job, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        jobs.invalidateAll();
+        jobs.cleanUp();
+    }
+
+    /**
+     * Cria o job de análise e o coloca na fila.
+     * @param userId Id do usuário dono da caixa
+     * @param email E-mail do usuário (chave das credenciais do Gmail)
+     * @return Estado inicial do job
+     * @throws RejectedExecutionException se a fila de jobs estiver cheia
+     */
+    public ImportJobDTO iniciar(Long userId, String email, String remetente, String assunto) {
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), userId);
+        // No cache antes de executar: um job que termina rápido já encontra a própria entrada
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(() -> executar(job, email, remetente, assunto));
+        } catch (RejectedExecutionException e) {
+            jobs.invalidate(job.getId());
+            throw e;
+        }
+        return job.toDTO();
+    }
+
+    public ImportJobDTO status(String jobId, Long userId) {
+        return buscar(jobId, userId).toDTO();
+    }
+
+    /**
+     * Stream SSE com eventos "progress" durante a execução e um evento final "concluido" ou "falhou".
+     */
+    public SseEmitter acompanhar(String jobId, Long userId) {
+        ImportJob job = buscar(jobId, userId);
+        SseEmitter emitter = new SseEmitter(jobTtl.toMillis());
+        job.acompanhar(emitter);
+        return emitter;
+    }
+
+    /**
+     * Copia as transações analisadas (array JSON) para a saída.
+     * @throws IllegalStateException se o job ainda não foi concluído
+     */
+    public void escreverResultado(String jobId, Long userId, OutputStream out) throws IOException {
+        Files.copy(resultadoConcluido(buscar(jobId, userId)), out);
+    }
+
+    /**
+     * Importa todas as transações analisadas pelo job e avança o checkpoint do Gmail.
+     * O job é descartado em seguida.
+     * @return Quantidade de transações novas salvas
+     * @throws IllegalStateException se o job ainda não foi concluído ou se uma importação concorrente
+     *         gravou as mesmas transações ao mesmo tempo (o job é mantido para uma nova tentativa)
+     */
+    public long confirmar(String jobId, User user) throws IOException {
+        ImportJob job = buscar(jobId, user.getId());
+        long salvas;
+        Set<String> mensagens = new HashSet<>();
+        try (MappingIterator<TransactionDTO> transactions = objectMapper.readerFor(TransactionDTO.class)
+                .readValues(resultadoConcluido(job).toFile())) {
+            salvas = transactionService.saveImportedTransactions(
+                    GmailSyncService.registrandoMensagens(transactions, mensagens), user);
+        }
+        gmailSyncService.confirmarSincronizacao(user, mensagens);
+        jobs.invalidate(jobId);
+        return salvas;
+    }
+
+    private void executar(ImportJob job, String email, String remetente, String assunto) {
+        job.iniciar();
+        Path arquivo = null;
+        try {
+            User user = userRepository.findById(job.getUserId())
+                    .orElseThrow(() -> new IllegalStateException("Usuário não encontrado"));
+            Gmail gmail = gmailAuthService.getGmailService(email);
+            List<GmailService.AnexoCsv> anexos = gmailSyncService.buscarNovosAnexos(gmail, user, remetente, assunto, job);
+
+            arquivo = Files.createTempFile("finansync-import-" + job.getId(), ".json");
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(arquivo));
+                 SequenceWriter writer = objectMapper.writerFor(TransactionDTO.class)
+                         .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                         .writeValuesAsArray(out)) {
+                Set<String> semTransacoes = new LinkedHashSet<>();
+                Set<String> comTransacoes = new HashSet<>();
+                for (GmailService.AnexoCsv anexo : anexos) {
+                    long linhas = escreverAnexo(job, anexo, writer);
+                    (linhas > 0 ? comTransacoes : semTransacoes).add(anexo.messageId());
+                }
+                semTransacoes.removeAll(comTransacoes);
+                gmailSyncService.descartarMensagensSemTransacoes(user, semTransacoes);
+            } finally {
+                GmailService.descartar(anexos);
+            }
+            job.concluir(arquivo);
+            logger.info("Job de importação {} concluído: {} transações analisadas.", job.getId(), job.toDTO().linhasProcessadas());
+        } catch (Exception e) {
+            logger.error("Job de importação {} falhou: {}", job.getId(), e.getMessage(), e);
+            apagar(arquivo);
+            job.falhar(e.getMessage());
+        }
+        // Começa a contar o TTL; se o job já saiu do cache (shutdown), ninguém mais apagaria o resultado
+        if (!jobs.asMap().replace(job.getId(), job, job)) {
+            apagarResultado(job);
+        }
+    }
+
+    // Retorna quantas transações o anexo rendeu (0 se o formato não foi reconhecido)
+    private long escreverAnexo(ImportJob job, GmailService.AnexoCsv anexo, SequenceWriter writer) throws IOException {
+        long total = 0;
+        long pendentes = 0;
+        Stream<TransactionDTO> transactions;
+        try {
+            transactions = csvParsingService.streamCsv(anexo.conteudo());
+        } catch (IllegalArgumentException e) {
+            // Anexo que não é extrato de nenhum formato conhecido
+            logger.warn("Job {}: anexo {} da mensagem {} ignorado: {}", job.getId(), anexo.filename(), anexo.messageId(), e.getMessage());
+            return 0;
+        }
+        try (transactions) {
+            Iterator<TransactionDTO> it = transactions.iterator();
+            while (it.hasNext()) {
+                writer.write(it.next().withEmailMessageId(anexo.messageId()));
+                total++;
+                if (++pendentes == LINHAS_POR_ATUALIZACAO) {
+                    job.linhasProcessadas(pendentes);
+                    pendentes = 0;
+                }
+            }
+        }
+        job.linhasProcessadas(pendentes);
+        return total;
+    }
+
+    private ImportJob buscar(String jobId, Long userId) {
+        ImportJob job = jobs.getIfPresent(jobId);
+        if (job == null || !job.getUserId().equals(userId)) {
+            throw new NoSuchElementException("Job de importação não encontrado");
+        }
+        return job;
+    }
+
+    private static Path resultadoConcluido(ImportJob job) {
+        if (job.getStatus() != ImportJob.Status.CONCLUIDO) {
+            throw new IllegalStateException("O job de importação ainda não foi concluído (status: " + job.getStatus() + ")");
+        }
+        return job.getResultado();
+    }
+
+    private static void apagarResultado(ImportJob job) {
+        apagar(job.getResultado());
+    }
+
+    private static void apagar(Path arquivo) {
+        if (arquivo == null) return;
+        try {
+            Files.deleteIfExists(arquivo);
+        } catch (IOException e) {
+            logger.warn("Não foi possível apagar o arquivo temporário {}: {}", arquivo, e.getMessage());
+        }
+    }
+}
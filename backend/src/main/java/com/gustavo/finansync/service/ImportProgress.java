@@ -0,0 +1,22 @@
+package com.gustavo.finansync.service;
+
+/**
+ * Recebe o andamento de uma importação do Gmail.
+ * Os métodos podem ser chamados de várias threads ao mesmo tempo.
+ */
+public interface ImportProgress {
+
+    ImportProgress NENHUM = new ImportProgress() {};
+
+    /** Total de mensagens novas que serão lidas. */
+    default void mensagensEncontradas(int total) {}
+
+    /** Mensagens cujo conteúdo já foi obtido do Gmail. */
+    default void mensagensLidas(int quantidade) {}
+
+    /** Um anexo CSV terminou de ser baixado. */
+    default void anexoBaixado() {}
+
+    /** Linhas do CSV já convertidas em transações. */
+    default void linhasProcessadas(long quantidade) {}
+}
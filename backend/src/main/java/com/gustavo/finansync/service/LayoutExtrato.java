@@ -0,0 +1,147 @@
+package com.gustavo.finansync.service;
+
+import com.gustavo.finansync.dto.TransactionDTO;
+import com.gustavo.finansync.entity.TransactionType;
+
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Formato de extrato já resolvido para um arquivo: charset, linhas antes dos dados e a posição
+ * de cada coluna no arquivo, calculadas uma vez na detecção. Converte as linhas sem procurar
+ * colunas por nome.
+ */
+final class LayoutExtrato {
+
+    private final FormatoExtrato formato;
+    private final Charset charset;
+    private final int linhasAntesDosDados;
+    private final int minimoCampos;
+    private final int colunaData;
+    private final int[] colunasDescricao;
+    private final int colunaValor;
+    private final String separadorRegex;
+    private final DateTimeFormatter formatoData;
+    private final LinhaExtratoDecoder decoder;
+
+    /**
+     * @param posicoes Posição no arquivo de cada coluna de {@link FormatoExtrato#colunas()}
+     * @param colunasArquivo Quantidade de colunas do cabeçalho do arquivo; linhas com menos campos são ignoradas
+     */
+    LayoutExtrato(FormatoExtrato formato, Charset charset, int linhasAntesDosDados, int[] posicoes, int colunasArquivo) {
+        this.formato = formato;
+        this.charset = charset;
+        this.linhasAntesDosDados = linhasAntesDosDados;
+        this.minimoCampos = colunasArquivo;
+        List<String> colunas = formato.colunas();
+        this.colunaData = posicoes[colunas.indexOf(formato.colunaData())];
+        this.colunaValor = posicoes[colunas.indexOf(formato.colunaValor())];
+        this.colunasDescricao = formato.colunasDescricao().stream()
+                .mapToInt(coluna -> posicoes[colunas.indexOf(coluna)])
+                .toArray();
+        this.separadorRegex = "\\" + formato.separador();
+        this.formatoData = DateTimeFormatter.ofPattern(formato.padraoData());
+        this.decoder = new LinhaExtratoDecoder(formato.separador(), colunaData, colunasDescricao, colunaValor,
+                minimoCampos, formato.padraoData(), formato.separadorDecimal(), formato.inverterSinal());
+    }
+
+    FormatoExtrato formato() {
+        return formato;
+    }
+
+    Charset charset() {
+        return charset;
+    }
+
+    int linhasAntesDosDados() {
+        return linhasAntesDosDados;
+    }
+
+    int minimoCampos() {
+        return minimoCampos;
+    }
+
+    /**
+     * Caminho rápido; null quando a linha precisa de {@link #campos(String)} e {@link #converter(String[])}.
+     */
+    TransactionDTO decodificar(String linha) {
+        return decoder.decodificar(linha);
+    }
+
+    /**
+     * Campos da linha com a mesma regra do String.split: campos vazios no fim são descartados.
+     * Campos entre aspas podem conter o separador ("" representa uma aspa).
+     */
+    String[] campos(String linha) {
+        if (linha.indexOf('"') < 0) return linha.split(separadorRegex);
+        return dividirComAspas(linha, formato.separador());
+    }
+
+    static String[] dividir(String linha, char separador) {
+        if (linha.indexOf('"') < 0) return linha.split("\\" + separador);
+        return dividirComAspas(linha, separador);
+    }
+
+    private static String[] dividirComAspas(String linha, char separador) {
+        List<String> campos = new ArrayList<>();
+        StringBuilder campo = new StringBuilder();
+        boolean entreAspas = false;
+        for (int i = 0; i < linha.length(); i++) {
+            char c = linha.charAt(i);
+            if (entreAspas) {
+                if (c == '"' && i + 1 < linha.length() && linha.charAt(i + 1) == '"') {
+                    campo.append('"');
+                    i++;
+                } else if (c == '"') {
+                    entreAspas = false;
+                } else {
+                    campo.append(c);
+                }
+            } else if (c == '"') {
+                entreAspas = true;
+            } else if (c == separador) {
+                campos.add(campo.toString());
+                campo.setLength(0);
+            } else {
+                campo.append(c);
+            }
+        }
+        campos.add(campo.toString());
+        int tamanho = campos.size();
+        while (tamanho > 0 && campos.get(tamanho - 1).isEmpty()) tamanho--;
+        return campos.subList(0, tamanho).toArray(new String[0]);
+    }
+
+    /**
+     * Converte os campos de uma linha de dados.
+     * @throws RuntimeException se a data ou o valor forem inválidos
+     */
+    TransactionDTO converter(String[] fields) {
+        StringBuilder fullDescription = new StringBuilder();
+        for (int i = 0; i < colunasDescricao.length; i++) {
+            if (i > 0) fullDescription.append(" - ");
+            fullDescription.append(fields[colunasDescricao[i]].trim());
+        }
+        LocalDate date = LocalDate.parse(fields[colunaData].trim(), formatoData);
+        char decimal = formato.separadorDecimal();
+        String valorStr = fields[colunaValor]
+                .replace(decimal == ',' ? "." : ",", "")
+                .replace(decimal, '.')
+                .trim();
+        BigDecimal amount = new BigDecimal(valorStr);
+        if (formato.inverterSinal()) amount = amount.negate();
+        TransactionType type = amount.signum() >= 0 ? TransactionType.RECEITA : TransactionType.DESPESA;
+        return new TransactionDTO(
+                null, // id
+                fullDescription.toString(),
+                null,
+                amount,
+                date,
+                type
+        );
+    }
+}
@@ -0,0 +1,216 @@
+package com.gustavo.finansync.service;
+
+import com.gustavo.finansync.dto.TransactionDTO;
+import com.gustavo.finansync.entity.TransactionType;
+
+import java.math.BigDecimal;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+
+/**
+ * Caminho rápido da conversão de linhas do extrato: percorre a linha no lugar, sem split,
+ * sem strings intermediárias para o valor e sem o DateTimeFormatter.
+ * O valor (1.234,56 ou 1,234.56, conforme o formato) vira direto um inteiro em centavos (ou na
+ * escala das casas decimais informadas) e a data dd/MM/yyyy ou yyyy-MM-dd é montada
+ * aritmeticamente, com um cache das datas recentes. Linhas fora do formato comum (com aspas,
+ * campos faltando, valores ou datas incomuns) retornam null para que o chamador use o caminho
+ * tradicional, que mantém as regras de linhas ignoradas e inválidas.
+ * As posições das colunas vêm do {@link LayoutExtrato} e são fixas por arquivo.
+ * Pode ser usado por várias threads ao mesmo tempo.
+ */
+final class LinhaExtratoDecoder {
+
+    // Dígitos que cabem num long sem estouro
+    private static final int MAXIMO_DIGITOS = 18;
+    private static final int TAMANHO_CACHE_DATAS = 1024;
+
+    private enum OrdemData { DIA_MES_ANO, ANO_MES_DIA, OUTRA }
+
+    private final char separador;
+    private final int colunaData;
+    private final int[] colunasDescricao;
+    private final int colunaValor;
+    private final int minimoCampos;
+    // Colunas delimitadas em cada linha: as usadas e as exigidas
+    private final int colunasLidas;
+    private final OrdemData ordemData;
+    private final char separadorDecimal;
+    private final char separadorMilhar;
+    private final boolean inverterSinal;
+
+    // Cache de mapeamento direto: datas vizinhas caem em posições vizinhas, então um extrato
+    // de até ~2 anos não tem colisões. LocalDate é imutável, então a disputa entre threads é benigna.
+    private final LocalDate[] datas = new LocalDate[TAMANHO_CACHE_DATAS];
+
+    LinhaExtratoDecoder(char separador, int colunaData, int[] colunasDescricao, int colunaValor, int minimoCampos,
+                        String padraoData, char separadorDecimal, boolean inverterSinal) {
+        this.separador = separador;
+        this.colunaData = colunaData;
+        this.colunasDescricao = colunasDescricao.clone();
+        this.colunaValor = colunaValor;
+        this.minimoCampos = minimoCampos;
+        int ultimaColuna = Math.max(colunaData, colunaValor);
+        for (int coluna : colunasDescricao) ultimaColuna = Math.max(ultimaColuna, coluna);
+        this.colunasLidas = Math.max(ultimaColuna + 1, minimoCampos);
+        this.ordemData = switch (padraoData) {
+            case "dd/MM/yyyy" -> OrdemData.DIA_MES_ANO;
+            case "yyyy-MM-dd" -> OrdemData.ANO_MES_DIA;
+            default -> OrdemData.OUTRA;
+        };
+        this.separadorDecimal = separadorDecimal;
+        this.separadorMilhar = separadorDecimal == ',' ? '.' : ',';
+        this.inverterSinal = inverterSinal;
+    }
+
+    /**
+     * @return A transação, ou null quando a linha deve passar pelo caminho tradicional
+     */
+    TransactionDTO decodificar(String linha) {
+        if (ordemData == OrdemData.OUTRA || linha.indexOf('"') >= 0) return null;
+
+        // fins[c]: posição do separador que fecha a coluna c (ou o fim da linha, na última)
+        int[] fins = new int[colunasLidas];
+        int inicio = 0;
+        for (int c = 0; c < colunasLidas; c++) {
+            int fim = linha.indexOf(separador, inicio);
+            if (fim < 0) {
+                if (c < colunasLidas - 1) return null;
+                fim = linha.length();
+            }
+            fins[c] = fim;
+            inicio = fim + 1;
+        }
+        // Como no split, campos vazios no fim da linha não contam
+        if (!temCampoAPartirDe(linha, inicioColuna(fins, minimoCampos - 1))) return null;
+
+        int inicioData = inicioSemEspacos(linha, inicioColuna(fins, colunaData), fins[colunaData]);
+        LocalDate date = data(linha, inicioData, fimSemEspacos(linha, inicioData, fins[colunaData]));
+        if (date == null) return null;
+        int inicioValor = inicioSemEspacos(linha, inicioColuna(fins, colunaValor), fins[colunaValor]);
+        BigDecimal amount = valor(linha, inicioValor, fimSemEspacos(linha, inicioValor, fins[colunaValor]));
+        if (amount == null) return null;
+        if (inverterSinal) amount = amount.negate();
+
+        TransactionType type = amount.signum() >= 0 ? TransactionType.RECEITA : TransactionType.DESPESA;
+        return new TransactionDTO(null, descricao(linha, fins), null, amount, date, type);
+    }
+
+    private String descricao(String linha, int[] fins) {
+        if (colunasDescricao.length == 1) {
+            int coluna = colunasDescricao[0];
+            int inicio = inicioSemEspacos(linha, inicioColuna(fins, coluna), fins[coluna]);
+            return linha.substring(inicio, fimSemEspacos(linha, inicio, fins[coluna]));
+        }
+        int tamanho = 3 * (colunasDescricao.length - 1);
+        for (int coluna : colunasDescricao) tamanho += fins[coluna] - inicioColuna(fins, coluna);
+        StringBuilder descricao = new StringBuilder(tamanho);
+        for (int i = 0; i < colunasDescricao.length; i++) {
+            int coluna = colunasDescricao[i];
+            int inicio = inicioSemEspacos(linha, inicioColuna(fins, coluna), fins[coluna]);
+            if (i > 0) descricao.append(" - ");
+            descricao.append(linha, inicio, fimSemEspacos(linha, inicio, fins[coluna]));
+        }
+        return descricao.toString();
+    }
+
+    /**
+     * Data no formato exato dd/MM/yyyy ou yyyy-MM-dd. Outros formatos e datas inválidas retornam null.
+     */
+    LocalDate data(CharSequence texto, int inicio, int fim) {
+        if (fim - inicio != 10) return null;
+        int dia;
+        int mes;
+        int ano;
+        if (ordemData == OrdemData.DIA_MES_ANO) {
+            if (texto.charAt(inicio + 2) != '/' || texto.charAt(inicio + 5) != '/') return null;
+            dia = digitos(texto, inicio, inicio + 2);
+            mes = digitos(texto, inicio + 3, inicio + 5);
+            ano = digitos(texto, inicio + 6, inicio + 10);
+        } else {
+            if (texto.charAt(inicio + 4) != '-' || texto.charAt(inicio + 7) != '-') return null;
+            ano = digitos(texto, inicio, inicio + 4);
+            mes = digitos(texto, inicio + 5, inicio + 7);
+            dia = digitos(texto, inicio + 8, inicio + 10);
+        }
+        if (dia < 0 || mes < 0 || ano < 1) return null;
+
+        int posicao = Math.floorMod(ano * 372 + mes * 31 + dia, TAMANHO_CACHE_DATAS);
+        LocalDate cached = datas[posicao];
+        if (cached != null && cached.getDayOfMonth() == dia && cached.getMonthValue() == mes && cached.getYear() == ano) {
+            return cached;
+        }
+        try {
+            LocalDate date = LocalDate.of(ano, mes, dia);
+            datas[posicao] = date;
+            return date;
+        } catch (DateTimeException e) {
+            // Ex.: 31/04 — o caminho tradicional decide como tratar
+            return null;
+        }
+    }
+
+    /**
+     * Valor com sinal opcional, separadores de milhar ignorados e o separador decimal do formato.
+     * A escala do resultado é o número de casas decimais, como no caminho tradicional.
+     * Entradas com outros caracteres, mais de um separador decimal ou mais de 18 dígitos retornam null.
+     */
+    BigDecimal valor(CharSequence texto, int inicio, int fim) {
+        int i = inicio;
+        boolean negativo = false;
+        if (i < fim && (texto.charAt(i) == '-' || texto.charAt(i) == '+')) {
+            negativo = texto.charAt(i) == '-';
+            i++;
+        }
+        long unscaled = 0;
+        int digitos = 0;
+        int escala = -1;
+        for (; i < fim; i++) {
+            char c = texto.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++digitos > MAXIMO_DIGITOS) return null;
+                unscaled = unscaled * 10 + (c - '0');
+                if (escala >= 0) escala++;
+            } else if (c == separadorDecimal) {
+                if (escala >= 0) return null;
+                escala = 0;
+            } else if (c != separadorMilhar) {
+                return null;
+            }
+        }
+        if (digitos == 0) return null;
+        return BigDecimal.valueOf(negativo ? -unscaled : unscaled, Math.max(escala, 0));
+    }
+
+    private boolean temCampoAPartirDe(String linha, int inicio) {
+        for (int i = inicio; i < linha.length(); i++) {
+            if (linha.charAt(i) != separador) return true;
+        }
+        return false;
+    }
+
+    private static int inicioColuna(int[] fins, int coluna) {
+        return coluna == 0 ? 0 : fins[coluna - 1] + 1;
+    }
+
+    private static int digitos(CharSequence texto, int inicio, int fim) {
+        int valor = 0;
+        for (int i = inicio; i < fim; i++) {
+            char c = texto.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            valor = valor * 10 + (c - '0');
+        }
+        return valor;
+    }
+
+    // Mesmo critério de String.trim(): caracteres até o espaço (inclusive)
+    private static int inicioSemEspacos(CharSequence texto, int inicio, int fim) {
+        while (inicio < fim && texto.charAt(inicio) <= ' ') inicio++;
+        return inicio;
+    }
+
+    // inicio já sem espaços: num campo só de espaços o resultado é o próprio inicio (campo vazio)
+    private static int fimSemEspacos(CharSequence texto, int inicio, int fim) {
+        while (fim > inicio && texto.charAt(fim - 1) <= ' ') fim--;
+        return fim;
+    }
+}
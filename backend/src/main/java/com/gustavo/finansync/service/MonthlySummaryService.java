@@ -0,0 +1,179 @@
+package com.gustavo.finansync.service;
+
+import com.gustavo.finansync.dto.TransactionSummaryDTO;
+import com.gustavo.finansync.entity.Transaction;
+import com.gustavo.finansync.entity.TransactionType;
+import com.gustavo.finansync.entity.User;
+import com.gustavo.finansync.repository.MonthlySummaryRepository;
+import com.gustavo.finansync.repository.TransactionRepository;
+import com.gustavo.finansync.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Mantém a tabela monthly_summaries (totais por usuário, mês, tipo e categoria)
+ * e responde aos totais do dashboard a partir dela.
+ * Os métodos de escrita participam da transação de quem altera as transações.
+ */
+@Service
+public class MonthlySummaryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MonthlySummaryService.class);
+
+    private final MonthlySummaryRepository monthlySummaryRepository;
+    private final TransactionRepository transactionRepository;
+    private final UserRepository userRepository;
+
+    public MonthlySummaryService(MonthlySummaryRepository monthlySummaryRepository,
+                                 TransactionRepository transactionRepository,
+                                 UserRepository userRepository) {
+        this.monthlySummaryRepository = monthlySummaryRepository;
+        this.transactionRepository = transactionRepository;
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Soma a transação aos totais do seu mês.
+     */
+    @Transactional
+    public void adicionar(Transaction transaction) {
+        aplicar(transaction, 1);
+    }
+
+    /**
+     * Remove a transação dos totais do seu mês; a linha do mês é apagada se ficar vazia.
+     * Deve ser chamado com os valores anteriores à alteração ou exclusão.
+     */
+    @Transactional
+    public void remover(Transaction transaction) {
+        aplicar(transaction, -1);
+    }
+
+    /**
+     * Soma um bloco de transações, agregando em memória antes de gravar:
+     * um extrato costuma gerar poucas combinações de mês, tipo e categoria.
+     */
+    @Transactional
+    public void adicionarTodas(User user, Collection<Transaction> transactions) {
+        Map<Chave, Delta> deltas = new HashMap<>();
+        for (Transaction t : transactions) {
+            deltas.computeIfAbsent(Chave.of(t), k -> new Delta()).somar(t.getAmount(), 1);
+        }
+        deltas.forEach((chave, delta) -> monthlySummaryRepository.addDelta(
+                user.getId(), chave.monthStart(), chave.type().name(), chave.category(), delta.amount, delta.count));
+    }
+
+    /**
+     * Soma as transações informadas (já gravadas) aos totais dos seus meses, agrupando no banco.
+     */
+    @Transactional
+    public void adicionarPorIds(User user, Collection<Long> ids) {
+        monthlySummaryRepository.addDeltaForTransactions(user.getId(), ids, 1);
+    }
+
+    /**
+     * Remove as transações informadas dos totais dos seus meses, agrupando no banco.
+     * As linhas que ficarem vazias são apagadas.
+     * Deve ser chamado antes da alteração ou exclusão em massa.
+     */
+    @Transactional
+    public void removerPorIds(User user, Collection<Long> ids) {
+        monthlySummaryRepository.addDeltaForTransactions(user.getId(), ids, -1);
+        monthlySummaryRepository.deleteEmptyByUserId(user.getId());
+    }
+
+    /**
+     * Totais de receitas e despesas do período.
+     * Os meses completos vêm das linhas de resumo; apenas os meses parciais das pontas
+     * do intervalo consultam as transações.
+     */
+    @Transactional(readOnly = true)
+    public TransactionSummaryDTO resumir(User user, LocalDate startDate, LocalDate endDate) {
+        BigDecimal receitas = somar(user, TransactionType.RECEITA, startDate, endDate);
+        BigDecimal despesas = somar(user, TransactionType.DESPESA, startDate, endDate);
+        return new TransactionSummaryDTO(startDate, endDate, receitas, despesas, receitas.add(despesas));
+    }
+
+    @Transactional(readOnly = true)
+    public BigDecimal somar(User user, TransactionType type, LocalDate startDate, LocalDate endDate) {
+        if (endDate.isBefore(startDate)) return BigDecimal.ZERO;
+
+        LocalDate primeiroMesCompleto = startDate.getDayOfMonth() == 1 ? startDate : startDate.withDayOfMonth(1).plusMonths(1);
+        LocalDate ultimoMesCompleto = endDate.equals(endDate.withDayOfMonth(endDate.lengthOfMonth()))
+                ? endDate.withDayOfMonth(1)
+                : endDate.withDayOfMonth(1).minusMonths(1);
+
+        if (primeiroMesCompleto.isAfter(ultimoMesCompleto)) {
+            // Intervalo menor que um mês completo
+            return transactionRepository.sumAmountByUserAndTypeAndDateBetween(user, type, startDate, endDate);
+        }
+
+        BigDecimal total = monthlySummaryRepository.sumAmountByUserAndTypeAndMonthBetween(
+                user, type, primeiroMesCompleto, ultimoMesCompleto);
+        if (startDate.isBefore(primeiroMesCompleto)) {
+            total = total.add(transactionRepository.sumAmountByUserAndTypeAndDateBetween(
+                    user, type, startDate, primeiroMesCompleto.minusDays(1)));
+        }
+        LocalDate fimMesesCompletos = ultimoMesCompleto.plusMonths(1);
+        if (!endDate.isBefore(fimMesesCompletos)) {
+            total = total.add(transactionRepository.sumAmountByUserAndTypeAndDateBetween(
+                    user, type, fimMesesCompletos, endDate));
+        }
+        return total;
+    }
+
+    /**
+     * Recalcula os totais do usuário a partir das transações.
+     */
+    @Transactional
+    public void reconstruir(Long userId) {
+        monthlySummaryRepository.deleteByUserId(userId);
+        monthlySummaryRepository.rebuildForUser(userId);
+    }
+
+    /**
+     * Recalcula os totais de todos os usuários (backfill de dados anteriores à tabela de resumo).
+     */
+    @Transactional
+    public void reconstruirTodos() {
+        for (User user : userRepository.findAll()) {
+            reconstruir(user.getId());
+        }
+        logger.info("Resumos mensais reconstruídos para todos os usuários.");
+    }
+
+    private void aplicar(Transaction t, int sinal) {
+        Chave chave = Chave.of(t);
+        Long userId = t.getUser().getId();
+        monthlySummaryRepository.addDelta(userId, chave.monthStart(), chave.type().name(),
+                chave.category(), sinal > 0 ? t.getAmount() : t.getAmount().negate(), sinal);
+        if (sinal < 0) {
+            monthlySummaryRepository.deleteIfEmpty(userId, chave.monthStart(), chave.type().name(), chave.category());
+        }
+    }
+
+    private record Chave(LocalDate monthStart, TransactionType type, String category) {
+        static Chave of(Transaction t) {
+            return new Chave(t.getTransactionDate().withDayOfMonth(1), t.getType(),
+                    t.getCategory() != null ? t.getCategory() : "");
+        }
+    }
+
+    private static final class Delta {
+        private BigDecimal amount = BigDecimal.ZERO;
+        private long count;
+
+        void somar(BigDecimal valor, long quantidade) {
+            amount = amount.add(valor);
+            count += quantidade;
+        }
+    }
+}
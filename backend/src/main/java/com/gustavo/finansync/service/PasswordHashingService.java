@@ -0,0 +1,97 @@
+package com.gustavo.finansync.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Executa o BCrypt (hash e verificação de senha) num pool próprio e limitado,
+ * fora das threads do Tomcat. Uma rajada de logins ocupa no máximo as threads deste pool;
+ * com a fila cheia, a operação é rejeitada na hora com {@link RejectedExecutionException}
+ * em vez de segurar as requisições das demais rotas.
+ */
+@Service
+public class PasswordHashingService {
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Counter rejeitadas;
+
+    public PasswordHashingService(PasswordEncoder passwordEncoder, MeterRegistry meterRegistry,
+                                  @Value("${finansync.security.bcrypt.threads:2}") int threads,
+                                  @Value("${finansync.security.bcrypt.queue-capacity:50}") int queueCapacity) {
+        this.passwordEncoder = passwordEncoder;
+        AtomicInteger contador = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread thread = new Thread(r, "bcrypt-" + contador.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+
+        // executor.queued, executor.active, executor.pool.size... com a tag name=bcrypt
+        new ExecutorServiceMetrics(executor, "bcrypt", Tags.empty()).bindTo(meterRegistry);
+        this.encodeTimer = Timer.builder("finansync.password.hashing")
+                .description("Tempo de execução do BCrypt, sem a espera na fila")
+                .tag("operation", "encode")
+                .register(meterRegistry);
+        this.matchesTimer = Timer.builder("finansync.password.hashing")
+                .description("Tempo de execução do BCrypt, sem a espera na fila")
+                .tag("operation", "matches")
+                .register(meterRegistry);
+        this.rejeitadas = Counter.builder("finansync.password.rejected")
+                .description("Operações de senha rejeitadas com o pool do BCrypt cheio")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Gera o hash da senha com o custo configurado.
+     */
+    public CompletableFuture<String> encode(String rawPassword) {
+        return submeter(encodeTimer, () -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * Verifica a senha contra o hash armazenado.
+     */
+    public CompletableFuture<Boolean> matches(String rawPassword, String encodedPassword) {
+        return submeter(matchesTimer, () -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * Indica se o hash foi gerado com um custo menor que o configurado e deve ser refeito.
+     */
+    public boolean precisaRehash(String encodedPassword) {
+        return passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> CompletableFuture<T> submeter(Timer timer, Supplier<T> operacao) {
+        try {
+            return CompletableFuture.supplyAsync(() -> timer.record(operacao), executor);
+        } catch (RejectedExecutionException e) {
+            rejeitadas.increment();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.gustavo.finansync.service;
+
+import com.gustavo.finansync.entity.User;
+import com.gustavo.finansync.repository.TransactionCounterRepository;
+import com.gustavo.finansync.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Mantém a tabela transaction_counters (quantidade de transações por usuário) e responde
+ * às contagens a partir dela, sem COUNT(*) em transactions.
+ * Os métodos de escrita participam da transação de quem insere ou exclui as transações,
+ * então o contador nunca fica à frente ou atrás de um rollback.
+ */
+@Service
+public class TransactionCounterService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionCounterService.class);
+
+    private final TransactionCounterRepository transactionCounterRepository;
+    private final UserRepository userRepository;
+
+    public TransactionCounterService(TransactionCounterRepository transactionCounterRepository,
+                                     UserRepository userRepository) {
+        this.transactionCounterRepository = transactionCounterRepository;
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Soma (ou subtrai, com delta negativo) transações à quantidade do usuário.
+     */
+    @Transactional
+    public void ajustar(User user, long delta) {
+        if (delta != 0) {
+            transactionCounterRepository.addDelta(user.getId(), delta);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public long contar(User user) {
+        return transactionCounterRepository.findCountByUserId(user.getId()).orElse(0L);
+    }
+
+    @Transactional(readOnly = true)
+    public long contarTodas() {
+        return transactionCounterRepository.sumAll();
+    }
+
+    /**
+     * Recalcula a quantidade do usuário a partir das transações.
+     */
+    @Transactional
+    public void reconstruir(Long userId) {
+        transactionCounterRepository.rebuildForUser(userId);
+    }
+
+    /**
+     * Recalcula a quantidade de todos os usuários.
+     */
+    @Transactional
+    public void reconstruirTodos() {
+        for (User user : userRepository.findAll()) {
+            reconstruir(user.getId());
+        }
+        logger.info("Contadores de transações reconstruídos para todos os usuários.");
+    }
+}
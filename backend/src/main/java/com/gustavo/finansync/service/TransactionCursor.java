@@ -0,0 +1,32 @@
+package com.gustavo.finansync.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+
+/**
+ * Posição na listagem de transações ordenada por (transaction_date DESC, id DESC).
+ * É enviada ao cliente como token opaco em Base64 URL-safe.
+ */
+public record TransactionCursor(LocalDate transactionDate, Long id) {
+
+    public String encode() {
+        String raw = transactionDate + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException se o token não foi gerado por {@link #encode()}
+     */
+    public static TransactionCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separador = raw.indexOf(':');
+            return new TransactionCursor(
+                    LocalDate.parse(raw.substring(0, separador)),
+                    Long.parseLong(raw.substring(separador + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor inválido.", e);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.gustavo.finansync.service;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Impressão digital do conteúdo de uma transação importada: SHA-256 de
+ * usuário, data, valor e descrição normalizada.
+ * Linhas idênticas dentro do mesmo extrato (ex: duas compras iguais no mesmo dia) recebem
+ * o número da ocorrência, então continuam distintas entre si mas colidem numa reimportação.
+ * A migração V6 tem uma cópia própria deste cálculo; mudá-lo aqui não reescreve os fingerprints
+ * já gravados, o que exige uma nova migração.
+ */
+public final class TransactionFingerprint {
+
+    private static final Pattern ACENTOS = Pattern.compile("\\p{M}+");
+    private static final Pattern ESPACOS = Pattern.compile("\\s+");
+
+    private TransactionFingerprint() {}
+
+    /**
+     * Chave base da linha, sem o número da ocorrência.
+     */
+    public static String chave(Long userId, LocalDate date, BigDecimal amount, String description) {
+        return userId + "|" + date + "|" + normalizarValor(amount) + "|" + normalizarDescricao(description);
+    }
+
+    /**
+     * Fingerprint final da linha.
+     * @param chave Resultado de {@link #chave}
+     * @param ocorrencia Posição (a partir de 1) da linha entre as de mesma chave no extrato
+     * @return Hash hexadecimal de 64 caracteres
+     */
+    public static String of(String chave, int ocorrencia) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest((chave + "#" + ocorrencia).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível", e);
+        }
+    }
+
+    static String normalizarDescricao(String description) {
+        if (description == null) return "";
+        String semAcentos = ACENTOS.matcher(Normalizer.normalize(description, Normalizer.Form.NFD)).replaceAll("");
+        return ESPACOS.matcher(semAcentos.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    static String normalizarValor(BigDecimal amount) {
+        if (amount == null) return "";
+        return amount.signum() == 0 ? "0" : amount.stripTrailingZeros().toPlainString();
+    }
+}
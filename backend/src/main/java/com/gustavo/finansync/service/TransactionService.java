@@ -1,42 +1,85 @@
 package com.gustavo.finansync.service;
 
+import com.gustavo.finansync.dto.BulkTransactionRequest;
+import com.gustavo.finansync.dto.CategoryTotalDTO;
+import com.gustavo.finansync.dto.CursorPage;
 import com.gustavo.finansync.dto.TransactionDTO;
 import com.gustavo.finansync.entity.Transaction;
 import com.gustavo.finansync.entity.TransactionSource;
+import com.gustavo.finansync.entity.TransactionType;
 import com.gustavo.finansync.entity.User;
+import com.gustavo.finansync.repository.TransactionBatchRepository;
 import com.gustavo.finansync.repository.TransactionRepository;
 import com.gustavo.finansync.repository.UserRepository;
-import jakarta.persistence.criteria.Predicate;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
-import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class TransactionService {
 
+    private static final Logger logger = LoggerFactory.getLogger(TransactionService.class);
+
     private final TransactionRepository transactionRepository;
     private final UserRepository userRepository;
-
-    public TransactionService(TransactionRepository transactionRepository, UserRepository userRepository) {
+    private final TransactionBatchRepository transactionBatchRepository;
+    private final MonthlySummaryService monthlySummaryService;
+    private final TransactionCounterService transactionCounterService;
+    private final Validator validator;
+
+    // Quantidade de linhas importadas enviadas ao banco em cada lote JDBC
+    private final int importBatchSize;
+    // Quantidade de ids por comando nas alterações e exclusões em massa
+    private final int bulkChunkSize;
+
+    public TransactionService(TransactionRepository transactionRepository, UserRepository userRepository,
+                              TransactionBatchRepository transactionBatchRepository,
+                              MonthlySummaryService monthlySummaryService,
+                              TransactionCounterService transactionCounterService,
+                              Validator validator,
+                              @Value("${finansync.import.batch-size:1000}") int importBatchSize,
+                              @Value("${finansync.transactions.bulk-chunk-size:1000}") int bulkChunkSize) {
         this.transactionRepository = transactionRepository;
         this.userRepository = userRepository;
+        this.transactionBatchRepository = transactionBatchRepository;
+        this.monthlySummaryService = monthlySummaryService;
+        this.transactionCounterService = transactionCounterService;
+        this.validator = validator;
+        this.importBatchSize = importBatchSize;
+        this.bulkChunkSize = bulkChunkSize;
     }
 
     @Transactional
     public TransactionDTO create(TransactionDTO dto, Long userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("Usuário não encontrado"));
+        // Referência sem SELECT: o id vem do token e a FK garante que o usuário existe
+        User user = userRepository.getReferenceById(userId);
 
         Transaction transaction = new Transaction();
         // Mapeamento do DTO para a entidade
@@ -48,6 +91,8 @@ public class TransactionService {
         transaction.setUser(user);
 
         Transaction savedTransaction = transactionRepository.save(transaction);
+        monthlySummaryService.adicionar(savedTransaction);
+        transactionCounterService.ajustar(user, 1);
         return toDTO(savedTransaction);
     }
 
@@ -73,21 +118,18 @@ public class TransactionService {
     public Page<TransactionDTO> findAllByUser(User user, String description, int page, int size) {
         Pageable pageable = PageRequest.of(page, size, Sort.by("transactionDate").descending());
 
-        Page<Transaction> transactionPage;
-        if (description != null && !description.isEmpty()) {
-            transactionPage = transactionRepository
-                    .findByUserAndDescriptionContainingIgnoreCaseOrderByTransactionDateDesc(user, description, pageable);
-        } else {
-            transactionPage = transactionRepository
-                    .findByUserOrderByTransactionDateDesc(user, pageable);
+        DescriptionSearch search = DescriptionSearch.of(description);
+        if (!search.isEmpty()) {
+            return transactionRepository.findByFilter(user, search.fullText(), search.like(), null, null, pageable);
         }
-        return transactionPage.map(this::toDTO);
+        return listarSemFiltro(user, pageable);
     }
 
     @Transactional
     public TransactionDTO update(Long id, TransactionDTO dto) {
         Transaction transaction = transactionRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Transação não encontrada com o id: " + id));
+        monthlySummaryService.remover(transaction);
 
         transaction.setDescription(dto.description());
         transaction.setCategory(dto.category());
@@ -96,6 +138,7 @@ public class TransactionService {
         transaction.setType(dto.type());
 
         Transaction updatedTransaction = transactionRepository.save(transaction);
+        monthlySummaryService.adicionar(updatedTransaction);
         return toDTO(updatedTransaction);
     }
 
@@ -104,6 +147,7 @@ public class TransactionService {
     public TransactionDTO updateForUser(Long id, TransactionDTO dto, User user) {
         Transaction tx = transactionRepository.findByIdAndUser(id, user)
                 .orElseThrow(() -> new RuntimeException("Transação não encontrada para este usuário."));
+        monthlySummaryService.remover(tx);
 
         tx.setDescription(dto.description());
         tx.setCategory(dto.category());
@@ -112,15 +156,17 @@ public class TransactionService {
         tx.setType(dto.type());
 
         Transaction updated = transactionRepository.save(tx);
+        monthlySummaryService.adicionar(updated);
         return toDTO(updated);
     }
 
     @Transactional
     public void delete(Long id) {
-        if (!transactionRepository.existsById(id)) {
-            throw new RuntimeException("Transação não encontrada com o id: " + id);
-        }
-        transactionRepository.deleteById(id);
+        Transaction transaction = transactionRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Transação não encontrada com o id: " + id));
+        monthlySummaryService.remover(transaction);
+        transactionRepository.delete(transaction);
+        transactionCounterService.ajustar(transaction.getUser(), -1);
     }
 
     // NOVO: garante que a transação pertence ao usuário antes de deletar
@@ -128,24 +174,120 @@ public class TransactionService {
     public void deleteForUser(Long id, User user) {
         Transaction tx = transactionRepository.findByIdAndUser(id, user)
                 .orElseThrow(() -> new RuntimeException("Transação não encontrada para este usuário."));
+        monthlySummaryService.remover(tx);
         transactionRepository.delete(tx);
+        transactionCounterService.ajustar(user, -1);
+    }
+
+    /**
+     * Altera a categoria das transações selecionadas com UPDATEs em massa de até bulkChunkSize ids.
+     * Cada bloco custa três comandos, qualquer que seja o tamanho: retira os totais mensais das
+     * linhas, altera e soma os totais de novo, já com a nova categoria.
+     * @return Número de transações alteradas
+     * @throws IllegalArgumentException se a seleção não tiver ids nem filtros, ou a categoria for longa demais
+     */
+    @Transactional
+    public long updateCategoryForUser(User user, BulkTransactionRequest request) {
+        String category = request.category() == null || request.category().isBlank() ? null : request.category().trim();
+        if (category != null && category.length() > 255) {
+            throw new IllegalArgumentException("Categoria deve ter no máximo 255 caracteres");
+        }
+        LocalDateTime agora = LocalDateTime.now();
+        return emBlocos(user, request, ids -> {
+            monthlySummaryService.removerPorIds(user, ids);
+            int alteradas = transactionRepository.updateCategoryByUserAndIdIn(user, ids, category, agora);
+            monthlySummaryService.adicionarPorIds(user, ids);
+            return alteradas;
+        });
+    }
+
+    /**
+     * Exclui as transações selecionadas com DELETEs em massa de até bulkChunkSize ids,
+     * retirando-as dos totais mensais e do contador do usuário.
+     * @return Número de transações excluídas
+     * @throws IllegalArgumentException se a seleção não tiver ids nem filtros
+     */
+    @Transactional
+    public long deleteForUser(User user, BulkTransactionRequest request) {
+        return emBlocos(user, request, ids -> {
+            monthlySummaryService.removerPorIds(user, ids);
+            int excluidas = transactionRepository.deleteByUserAndIdIn(user, ids);
+            transactionCounterService.ajustar(user, -excluidas);
+            return excluidas;
+        });
+    }
+
+    /**
+     * Aplica a operação aos ids selecionados, em blocos de bulkChunkSize.
+     * Sem ids, os blocos são lidos pelos filtros em ordem de id, a partir do último id do bloco anterior.
+     */
+    private long emBlocos(User user, BulkTransactionRequest request, ToIntFunction<List<Long>> operacao) {
+        long total = 0;
+        if (request.ids() != null && !request.ids().isEmpty()) {
+            List<Long> ids = request.ids().stream().filter(Objects::nonNull).distinct().toList();
+            for (int inicio = 0; inicio < ids.size(); inicio += bulkChunkSize) {
+                total += operacao.applyAsInt(ids.subList(inicio, Math.min(inicio + bulkChunkSize, ids.size())));
+            }
+            return total;
+        }
+
+        DescriptionSearch search = DescriptionSearch.of(request.description());
+        if (search.isEmpty() && request.startDate() == null && request.endDate() == null) {
+            // Evita alterar ou excluir todas as transações do usuário por um corpo vazio
+            throw new IllegalArgumentException("Informe os ids ou ao menos um filtro (descrição ou período).");
+        }
+        long ultimoId = 0;
+        while (true) {
+            List<Long> ids = transactionRepository.findIdsByFilter(user, search.fullText(), search.like(),
+                    request.startDate(), request.endDate(), ultimoId, Limit.of(bulkChunkSize));
+            if (ids.isEmpty()) break;
+            total += operacao.applyAsInt(ids);
+            if (ids.size() < bulkChunkSize) break;
+            ultimoId = ids.get(ids.size() - 1);
+        }
+        return total;
     }
 
-    // Método utilitário para converter Entidade para DTO
-    private TransactionDTO toDTO(Transaction transaction) {
+    // Método utilitário para converter Entidade para DTO (visível no pacote para os benchmarks)
+    TransactionDTO toDTO(Transaction transaction) {
         return new TransactionDTO(
                 transaction.getId(),
                 transaction.getDescription(),
                 transaction.getCategory(),
                 transaction.getAmount(),
                 transaction.getTransactionDate(),
-                transaction.getType()
+                transaction.getType(),
+                transaction.getEmailMessageId()
         );
     }
 
     @Transactional
     public void saveImportedTransactions(List<TransactionDTO> dtos, User user) {
-        for (TransactionDTO dto : dtos) {
+        saveImportedTransactions(dtos.iterator(), user);
+    }
+
+    /**
+     * Persiste as transações importadas à medida que são lidas do iterador.
+     * As linhas são inseridas em lotes JDBC de importBatchSize, sem passar pelo contexto
+     * de persistência, então o heap fica limitado ao tamanho do lote e não ao tamanho do extrato.
+     * Linhas já importadas anteriormente (mesmo fingerprint) são ignoradas.
+     * @return Número de transações salvas
+     * @throws IllegalArgumentException se alguma linha não passa nas validações da entidade
+     *         (nada é salvo, já que a transação é desfeita)
+     * @throws IllegalStateException se uma importação concorrente do mesmo usuário gravou as mesmas
+     *         linhas antes desta ou travou com ela (nada é salvo; confirmar de novo ignora as que
+     *         ela já gravou)
+     */
+    @Transactional
+    public long saveImportedTransactions(Iterator<TransactionDTO> dtos, User user) {
+        long inicio = System.nanoTime();
+        ImportDuplicateFilter duplicateFilter = new ImportDuplicateFilter(transactionRepository, user);
+        List<Transaction> chunk = new ArrayList<>(importBatchSize);
+        long total = 0;
+        long linha = 0;
+        while (dtos.hasNext()) {
+            TransactionDTO dto = dtos.next();
+            linha++;
             Transaction transaction = new Transaction();
             transaction.setDescription(dto.description());
             transaction.setCategory(dto.category());
@@ -154,100 +296,170 @@ public class TransactionService {
             transaction.setType(dto.type());
             transaction.setUser(user);
             transaction.setSource(TransactionSource.EMAIL_IMPORT); // Marca como importada por email
-            transactionRepository.save(transaction);
+            transaction.setEmailMessageId(dto.emailMessageId());
+            validarImportada(transaction, linha);
+            chunk.add(transaction);
+            if (chunk.size() == importBatchSize) {
+                total += flushImportChunk(chunk, duplicateFilter);
+            }
         }
+        total += flushImportChunk(chunk, duplicateFilter);
+
+        long elapsedMs = Math.max(1, (System.nanoTime() - inicio) / 1_000_000);
+        logger.info("Importação concluída: {} transações em {} ms ({} linhas/s), {} duplicadas ignoradas",
+                total, elapsedMs, total * 1000 / elapsedMs, duplicateFilter.getDuplicadas());
+        return total;
     }
 
+    // O INSERT em lote não passa pelo Hibernate, então as validações da entidade são aplicadas aqui
+    private void validarImportada(Transaction transaction, long linha) {
+        Set<ConstraintViolation<Transaction>> violacoes = validator.validate(transaction);
+        if (!violacoes.isEmpty()) {
+            throw new IllegalArgumentException("Transação " + linha + ": " + violacoes.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; ")));
+        }
+    }
+
+    private int flushImportChunk(List<Transaction> chunk, ImportDuplicateFilter duplicateFilter) {
+        duplicateFilter.filtrar(chunk);
+        int inserted;
+        try {
+            inserted = transactionBatchRepository.insertAll(chunk, importBatchSize);
+            if (inserted > 0) {
+                User user = chunk.get(0).getUser();
+                monthlySummaryService.adicionarTodas(user, chunk);
+                transactionCounterService.ajustar(user, inserted);
+            }
+        } catch (DuplicateKeyException | PessimisticLockingFailureException e) {
+            // Importação concorrente do mesmo usuário: UNIQUE(user_id, fingerprint) para linhas gravadas por ela
+            // depois que o filtro consultou o banco, ou deadlock entre os dois INSERTs/resumos
+            throw new IllegalStateException("Outra importação gravou transações ao mesmo tempo. Confirme novamente.", e);
+        }
+        chunk.clear();
+        return inserted;
+    }
+
+    /**
+     * Listagem paginada com filtros opcionais de descrição e período.
+     * @param contar false devolve um Slice, sem o total de linhas e páginas; sem filtros,
+     *               o total vem de transaction_counters em vez de COUNT(*)
+     */
     @Transactional(readOnly = true)
-    public Page<TransactionDTO> findByDateRange(
+    public Slice<TransactionDTO> findByDateRange(
             User user,
             String description,
             LocalDate startDate,
             LocalDate endDate,
             int page,
-            int size
+            int size,
+            boolean contar
     ) {
         Pageable pageable = PageRequest.of(page, size, Sort.by("transactionDate").descending());
-        Page<Transaction> transactionPage;
 
-        if (startDate != null && endDate != null) {
-            if (description != null && !description.isEmpty()) {
-                transactionPage = transactionRepository
-                        .findByUserAndDescriptionContainingIgnoreCaseAndTransactionDateBetweenOrderByTransactionDateDesc(
-                                user, description, startDate, endDate, pageable);
-            } else {
-                transactionPage = transactionRepository
-                        .findByUserAndTransactionDateBetweenOrderByTransactionDateDesc(
-                                user, startDate, endDate, pageable);
-            }
-        } else if (startDate != null) {
-            if (description != null && !description.isEmpty()) {
-                transactionPage = transactionRepository
-                        .findByUserAndDescriptionContainingIgnoreCaseAndTransactionDateGreaterThanEqualOrderByTransactionDateDesc(
-                                user, description, startDate, pageable);
-            } else {
-                transactionPage = transactionRepository
-                        .findByUserAndTransactionDateGreaterThanEqualOrderByTransactionDateDesc(
-                                user, startDate, pageable);
-            }
-        } else if (endDate != null) {
-            if (description != null && !description.isEmpty()) {
-                transactionPage = transactionRepository
-                        .findByUserAndDescriptionContainingIgnoreCaseAndTransactionDateLessThanEqualOrderByTransactionDateDesc(
-                                user, description, endDate, pageable);
-            } else {
-                transactionPage = transactionRepository
-                        .findByUserAndTransactionDateLessThanEqualOrderByTransactionDateDesc(
-                                user, endDate, pageable);
-            }
-        } else {
-            if (description != null && !description.isEmpty()) {
-                transactionPage = transactionRepository
-                        .findByUserAndDescriptionContainingIgnoreCaseOrderByTransactionDateDesc(
-                                user, description, pageable);
-            } else {
-                transactionPage = transactionRepository
-                        .findByUserOrderByTransactionDateDesc(user, pageable);
-            }
+        DescriptionSearch search = DescriptionSearch.of(description);
+        if (!search.isEmpty()) {
+            // Busca textual pelo índice FULLTEXT, com os filtros de período opcionais
+            return contar
+                    ? transactionRepository.findByFilter(user, search.fullText(), search.like(), startDate, endDate, pageable)
+                    : transactionRepository.sliceByFilter(user, search.fullText(), search.like(), startDate, endDate, pageable);
+        }
+        if (!contar) {
+            return transactionRepository.sliceByPeriod(user, startDate, endDate, pageable);
+        }
+        if (startDate == null && endDate == null) {
+            return listarSemFiltro(user, pageable);
         }
+        return transactionRepository.findByPeriod(user, startDate, endDate, pageable);
+    }
 
-        return transactionPage.map(this::toDTO);
+    private Page<TransactionDTO> listarSemFiltro(User user, Pageable pageable) {
+        Slice<TransactionDTO> slice = transactionRepository.sliceByPeriod(user, null, null, pageable);
+        // Sem filtros o total é a quantidade de transações do usuário; numa página incompleta nem é lido
+        return PageableExecutionUtils.getPage(slice.getContent(), pageable, () -> transactionCounterService.contar(user));
     }
 
+    /**
+     * Listagem paginada por cursor, ordenada por data e id decrescentes.
+     * @param cursor Token devolvido na página anterior (null para a primeira página)
+     */
     @Transactional(readOnly = true)
-    public List<TransactionDTO> findAllByUserNoPagination(User user, String description, LocalDate startDate, LocalDate endDate) {
-        // Usa Specification para criar uma query dinâmica
-        Specification<Transaction> spec = (root, query, criteriaBuilder) -> {
-            List<Predicate> predicates = new ArrayList<>();
-
-            // Filtro obrigatório por usuário
-            predicates.add(criteriaBuilder.equal(root.get("user"), user));
-
-            // Filtro opcional por descrição
-            if (description != null && !description.isEmpty()) {
-                predicates.add(criteriaBuilder.like(criteriaBuilder.lower(root.get("description")), "%" + description.toLowerCase() + "%"));
-            }
-
-            // Filtro opcional por data de início
-            if (startDate != null) {
-                predicates.add(criteriaBuilder.greaterThanOrEqualTo(root.get("transactionDate"), startDate));
-            }
+    public CursorPage<TransactionDTO> findByCursor(
+            User user,
+            String description,
+            LocalDate startDate,
+            LocalDate endDate,
+            String cursor,
+            int size
+    ) {
+        TransactionCursor position = cursor != null && !cursor.isEmpty() ? TransactionCursor.decode(cursor) : null;
+        DescriptionSearch search = DescriptionSearch.of(description);
+
+        // Uma linha extra indica se existe próxima página
+        List<TransactionDTO> rows = transactionRepository.findPageAfterCursor(
+                user, search.fullText(), search.like(), startDate, endDate,
+                position != null ? position.transactionDate() : null,
+                position != null ? position.id() : null,
+                Limit.of(size + 1));
+
+        boolean hasNext = rows.size() > size;
+        List<TransactionDTO> pageRows = hasNext ? new ArrayList<>(rows.subList(0, size)) : rows;
+        String nextCursor = null;
+        if (hasNext) {
+            TransactionDTO last = pageRows.get(pageRows.size() - 1);
+            nextCursor = new TransactionCursor(last.transactionDate(), last.id()).encode();
+        }
+        return new CursorPage<>(pageRows, nextCursor, hasNext);
+    }
 
-            // Filtro opcional por data de fim
-            if (endDate != null) {
-                predicates.add(criteriaBuilder.lessThanOrEqualTo(root.get("transactionDate"), endDate));
-            }
+    /**
+     * Soma e quantidade por categoria no período, calculadas pelo banco.
+     */
+    @Transactional(readOnly = true)
+    public List<CategoryTotalDTO> sumByCategory(User user, TransactionType type, LocalDate startDate, LocalDate endDate) {
+        return transactionRepository.sumAmountByCategoryAndPeriod(user, type, startDate, endDate);
+    }
 
-            return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
-        };
+    /**
+     * Busca textual na descrição, da transação mais relevante para a menos relevante.
+     * Termos curtos demais para o índice caem na busca por LIKE, ordenada por data.
+     * @param contar false devolve um Slice, sem o COUNT do total
+     */
+    @Transactional(readOnly = true)
+    public Slice<TransactionDTO> search(User user, String query, int page, int size, boolean contar) {
+        DescriptionSearch search = DescriptionSearch.of(query);
+        if (search.fullText() != null) {
+            Pageable pageable = PageRequest.of(page, size);
+            return contar
+                    ? transactionRepository.searchByRelevance(user, search.fullText(), pageable)
+                    : transactionRepository.sliceByRelevance(user, search.fullText(), pageable);
+        }
+        Pageable pageable = PageRequest.of(page, size, Sort.by("transactionDate").descending());
+        return contar
+                ? transactionRepository.findByFilter(user, null, search.like(), null, null, pageable)
+                : transactionRepository.sliceByFilter(user, null, search.like(), null, null, pageable);
+    }
 
-        // Busca todas as transações que correspondem aos filtros, sem paginação
-        List<Transaction> transactions = transactionRepository.findAll(spec);
+    @Transactional(readOnly = true)
+    public List<TransactionDTO> findAllByUserNoPagination(User user, String description, LocalDate startDate, LocalDate endDate) {
+        List<TransactionDTO> transactions = new ArrayList<>();
+        streamAllByUser(user, description, startDate, endDate, transactions::add);
+        return transactions;
+    }
 
-        // Converte a lista de entidades para uma lista de DTOs
-        return transactions.stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+    /**
+     * Entrega as transações filtradas uma a uma ao consumidor, lidas com cursor do servidor.
+     * As linhas chegam como DTOs, sem entidades no contexto de persistência, então a memória
+     * usada não depende da quantidade de linhas.
+     */
+    @Transactional(readOnly = true)
+    public void streamAllByUser(User user, String description, LocalDate startDate, LocalDate endDate,
+                                Consumer<TransactionDTO> consumer) {
+        DescriptionSearch search = DescriptionSearch.of(description);
+        try (Stream<TransactionDTO> transactions = transactionRepository.streamByFilter(
+                user, search.fullText(), search.like(), startDate, endDate)) {
+            transactions.forEach(consumer);
+        }
     }
 }
-
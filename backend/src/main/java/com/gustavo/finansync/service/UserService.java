@@ -1,53 +1,89 @@
 package com.gustavo.finansync.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.gustavo.finansync.dto.AuthDTOs;
 import com.gustavo.finansync.entity.User;
 import com.gustavo.finansync.repository.UserRepository;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
 @Service
 public class UserService {
 
+    private static final Logger logger = LoggerFactory.getLogger(UserService.class);
+
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
+    // E-mail -> id dos usuários autenticados; o e-mail não muda, então o id pode ser reaproveitado
+    private final Cache<String, Long> idsPorEmail;
 
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public UserService(UserRepository userRepository, PasswordHashingService passwordHashingService,
+                       @Value("${finansync.user-cache.max-size:10000}") long cacheMaxSize,
+                       @Value("${finansync.user-cache.ttl:10m}") Duration cacheTtl) {
         this.userRepository = userRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHashingService = passwordHashingService;
+        this.idsPorEmail = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheTtl)
+                .build();
     }
 
     /**
      * Registra um novo usuário no sistema.
+     * O hash da senha é gerado no pool do BCrypt, fora da thread da requisição.
      * @param request DTO com os dados do usuário.
+     * @return Usuário salvo; falha com IllegalStateException se o e-mail já estiver em uso
+     *         ou com RejectedExecutionException se o pool do BCrypt estiver cheio.
      */
-    public User register(AuthDTOs.UserRegisterRequest request) {
+    public CompletableFuture<User> register(AuthDTOs.UserRegisterRequest request) {
         if (userRepository.existsByEmail(request.email())) {
-            throw new IllegalStateException("O e-mail informado já está em uso.");
+            return CompletableFuture.failedFuture(new IllegalStateException("O e-mail informado já está em uso."));
         }
 
-        User newUser = new User(
-                request.name(),
-                request.email(),
-                passwordEncoder.encode(request.password())
-        );
-        return userRepository.save(newUser);
+        return passwordHashingService.encode(request.password())
+                .thenApply(hash -> userRepository.save(new User(request.name(), request.email(), hash)));
     }
 
     /**
      * Autentica um usuário com base no e-mail e senha.
      * @param email O e-mail do usuário.
      * @param password A senha (não criptografada).
-     * @return A entidade User se a autenticação for bem-sucedida.
+     * @return A entidade User se a autenticação for bem-sucedida; falha com IllegalArgumentException
+     *         para credenciais inválidas ou RejectedExecutionException se o pool do BCrypt estiver cheio.
      */
-    public User authenticate(String email, String password) {
-        User usuario = userRepository.findByEmail(email)
-                .orElseThrow(() -> new IllegalArgumentException("Usuário não encontrado para o e-mail: " + email));
-
-        if (!passwordEncoder.matches(password, usuario.getPasswordHash())) {
-            throw new IllegalArgumentException("Senha inválida.");
+    public CompletableFuture<User> authenticate(String email, String password) {
+        User usuario = userRepository.findByEmail(email).orElse(null);
+        if (usuario == null) {
+            return CompletableFuture.failedFuture(
+                    new IllegalArgumentException("Usuário não encontrado para o e-mail: " + email));
         }
-        return usuario;
+
+        return passwordHashingService.matches(password, usuario.getPasswordHash())
+                .thenApply(valida -> {
+                    if (!valida) {
+                        throw new IllegalArgumentException("Senha inválida.");
+                    }
+                    atualizarHashSeNecessario(usuario, password);
+                    return usuario;
+                });
+    }
+
+    // Refaz, em segundo plano, hashes gerados com um custo do BCrypt menor que o atual
+    private void atualizarHashSeNecessario(User usuario, String password) {
+        if (!passwordHashingService.precisaRehash(usuario.getPasswordHash())) return;
+        passwordHashingService.encode(password)
+                .thenAccept(hash -> userRepository.updatePasswordHash(usuario.getId(), hash))
+                .exceptionally(e -> {
+                    // Sem prejuízo ao login: o hash é refeito numa próxima autenticação
+                    logger.warn("Não foi possível atualizar o hash da senha do usuário {}: {}", usuario.getId(), e.getMessage());
+                    return null;
+                });
     }
 
     /**
@@ -58,4 +94,21 @@ public class UserService {
         return userRepository.findByEmail(email)
                 .orElseThrow(() -> new IllegalStateException("Usuário autenticado não encontrado no banco de dados."));
     }
+
+    /**
+     * Referência ao usuário pelo id, sem consultar o banco.
+     * Os campos são carregados apenas se forem lidos (o id não dispara carga).
+     */
+    public User getReference(Long id) {
+        return userRepository.getReferenceById(id);
+    }
+
+    /**
+     * Referência ao usuário pelo e-mail. Apenas a primeira chamada de cada e-mail,
+     * dentro do TTL do cache, consulta o banco.
+     */
+    public User getReferenceByEmail(String email) {
+        Long id = idsPorEmail.get(email, e -> findByEmail(e).getId());
+        return getReference(id);
+    }
 }
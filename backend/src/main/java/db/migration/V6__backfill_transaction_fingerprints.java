@@ -0,0 +1,116 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Calcula o fingerprint das transações importadas antes da detecção de duplicatas (V5),
+ * para que uma reimportação desses extratos não as duplique.
+ * A normalização da descrição (acentos, espaços) é a de TransactionFingerprint na época desta
+ * versão, copiada aqui (por isso a migração é em Java): mudanças futuras na aplicação não podem
+ * alterar o que esta migração já gravou nos bancos existentes. As ocorrências são numeradas por extrato de origem
+ * (email_message_id) na ordem de inserção, como em ImportDuplicateFilter. Linhas que já
+ * estavam duplicadas entre extratos mantêm o fingerprint nulo, preservando a chave única.
+ */
+public class V6__backfill_transaction_fingerprints extends BaseJavaMigration {
+
+    private static final int TAMANHO_LOTE = 1000;
+
+    private static final String SELECT_SQL =
+            "SELECT id, user_id, email_message_id, transaction_date, amount, description FROM transactions " +
+            "WHERE source = 'EMAIL_IMPORT' AND fingerprint IS NULL ORDER BY user_id, id";
+
+    private static final String UPDATE_SQL = "UPDATE transactions SET fingerprint = ? WHERE id = ?";
+
+    private static final Pattern ACENTOS = Pattern.compile("\\p{M}+");
+    private static final Pattern ESPACOS = Pattern.compile("\\s+");
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        Connection connection = context.getConnection();
+        try (Statement select = connection.createStatement();
+             PreparedStatement update = connection.prepareStatement(UPDATE_SQL)) {
+            select.setFetchSize(TAMANHO_LOTE);
+            Long usuarioAtual = null;
+            // Por extrato de origem: chave da linha -> ocorrências já vistas (do usuário atual)
+            Map<String, Map<String, Integer>> ocorrencias = new HashMap<>();
+            Set<String> atribuidos = new HashSet<>();
+            int pendentes = 0;
+            try (ResultSet rs = select.executeQuery(SELECT_SQL)) {
+                while (rs.next()) {
+                    long userId = rs.getLong("user_id");
+                    if (!Objects.equals(usuarioAtual, userId)) {
+                        usuarioAtual = userId;
+                        ocorrencias.clear();
+                        atribuidos.clear();
+                    }
+                    String chave = chave(userId, rs.getObject("transaction_date", LocalDate.class),
+                            rs.getBigDecimal("amount"), rs.getString("description"));
+                    Map<String, Integer> doExtrato = ocorrencias.computeIfAbsent(
+                            rs.getString("email_message_id"), id -> new HashMap<>());
+                    String fingerprint = fingerprint(chave, doExtrato.merge(chave, 1, Integer::sum));
+                    if (!atribuidos.add(fingerprint)) {
+                        continue;
+                    }
+                    update.setString(1, fingerprint);
+                    update.setLong(2, rs.getLong("id"));
+                    update.addBatch();
+                    if (++pendentes == TAMANHO_LOTE) {
+                        update.executeBatch();
+                        pendentes = 0;
+                    }
+                }
+            }
+            if (pendentes > 0) {
+                update.executeBatch();
+            }
+        }
+    }
+
+    // Cópia congelada de TransactionFingerprint (chave, of e normalizações)
+
+    private static String chave(long userId, LocalDate date, BigDecimal amount, String description) {
+        return userId + "|" + date + "|" + normalizarValor(amount) + "|" + normalizarDescricao(description);
+    }
+
+    private static String fingerprint(String chave, int ocorrencia) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest((chave + "#" + ocorrencia).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível", e);
+        }
+    }
+
+    private static String normalizarDescricao(String description) {
+        if (description == null) return "";
+        String semAcentos = ACENTOS.matcher(Normalizer.normalize(description, Normalizer.Form.NFD)).replaceAll("");
+        return ESPACOS.matcher(semAcentos.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    private static String normalizarValor(BigDecimal amount) {
+        if (amount == null) return "";
+        return amount.signum() == 0 ? "0" : amount.stripTrailingZeros().toPlainString();
+    }
+}
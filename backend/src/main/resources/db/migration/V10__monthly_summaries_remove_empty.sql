@@ -0,0 +1,7 @@
+-- ===================================================================
+-- Linhas de totais mensais que ficaram sem transações (todas excluídas ou
+-- movidas para outro mês/categoria). Daqui em diante são apagadas junto com
+-- o delta negativo que as esvazia.
+-- ===================================================================
+
+DELETE FROM monthly_summaries WHERE transaction_count = 0;
@@ -0,0 +1,36 @@
+-- ===================================================================
+-- Esquema inicial do FinanSync (equivalente ao gerado pelo ddl-auto=update)
+-- Bancos já existentes são marcados nesta versão (baseline-on-migrate) e
+-- recebem apenas as migrações seguintes.
+-- ===================================================================
+
+CREATE TABLE users (
+    id                       BIGINT       NOT NULL AUTO_INCREMENT,
+    name                     VARCHAR(100) NOT NULL,
+    email                    VARCHAR(150) NOT NULL,
+    password_hash            VARCHAR(255) NOT NULL,
+    google_id                VARCHAR(100),
+    gmail_refresh_token      TEXT,
+    is_active                BIT,
+    created_at               DATETIME(6)  NOT NULL,
+    updated_at               DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_users_email UNIQUE (email),
+    CONSTRAINT uk_users_google_id UNIQUE (google_id)
+) ENGINE = InnoDB;
+
+CREATE TABLE transactions (
+    id               BIGINT                        NOT NULL AUTO_INCREMENT,
+    user_id          BIGINT                        NOT NULL,
+    description      VARCHAR(255)                  NOT NULL,
+    amount           DECIMAL(15, 2)                NOT NULL,
+    type             ENUM ('DESPESA', 'RECEITA')   NOT NULL,
+    transaction_date DATE                          NOT NULL,
+    category         VARCHAR(255),
+    source           ENUM ('EMAIL_IMPORT', 'MANUAL'),
+    email_message_id VARCHAR(255),
+    created_at       DATETIME(6)                   NOT NULL,
+    updated_at       DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT fk_transactions_user FOREIGN KEY (user_id) REFERENCES users (id)
+) ENGINE = InnoDB;
@@ -0,0 +1,3 @@
+-- Índice de texto completo para a busca por descrição (MATCH ... AGAINST),
+-- substituindo o LOWER(description) LIKE '%x%' que exigia varrer as transações do usuário.
+ALTER TABLE transactions ADD FULLTEXT INDEX ft_transactions_description (description);
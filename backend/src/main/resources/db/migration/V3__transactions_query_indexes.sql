@@ -0,0 +1,14 @@
+-- ===================================================================
+-- Índices das consultas de listagem e importação de transações.
+-- As consultas por tipo e período, (user_id, type, transaction_date), já são
+-- atendidas pelo prefixo de idx_transactions_user_type_date_category (V5).
+-- ===================================================================
+
+-- Listagens, paginação por cursor e filtros de período: WHERE user_id = ?
+-- ORDER BY transaction_date DESC, id DESC sem ordenação em memória
+CREATE INDEX idx_transactions_user_date_id
+    ON transactions (user_id, transaction_date, id);
+
+-- Mensagens do Gmail já importadas pelo usuário (sincronização incremental)
+CREATE INDEX idx_transactions_user_email_message
+    ON transactions (user_id, email_message_id);
@@ -0,0 +1,16 @@
+-- ===================================================================
+-- Quantidade de transações por usuário, mantida na mesma transação de cada
+-- inserção, exclusão e importação. Substitui o COUNT(*) das listagens sem filtro
+-- e do health check. O total geral é a soma das linhas (uma por usuário).
+-- ===================================================================
+
+CREATE TABLE transaction_counters (
+    user_id           BIGINT NOT NULL,
+    transaction_count BIGINT NOT NULL,
+    PRIMARY KEY (user_id),
+    CONSTRAINT fk_transaction_counters_user FOREIGN KEY (user_id) REFERENCES users (id)
+) ENGINE = InnoDB;
+
+-- Contagem das transações já existentes
+INSERT INTO transaction_counters (user_id, transaction_count)
+SELECT user_id, COUNT(*) FROM transactions GROUP BY user_id;
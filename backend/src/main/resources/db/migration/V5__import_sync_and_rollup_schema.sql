@@ -0,0 +1,36 @@
+-- ===================================================================
+-- Colunas e tabelas adicionadas ao modelo depois do esquema inicial (V1)
+-- ===================================================================
+
+-- Sincronização incremental do Gmail: consulta e historyId do último checkpoint
+-- confirmado e do checkpoint pendente (aplicado na confirmação da importação)
+ALTER TABLE users
+    ADD COLUMN gmail_sync_query         VARCHAR(500),
+    ADD COLUMN gmail_history_id         BIGINT,
+    ADD COLUMN gmail_pending_sync_query VARCHAR(500),
+    ADD COLUMN gmail_pending_history_id BIGINT;
+
+-- Fingerprint do conteúdo de cada transação importada, para descartar duplicatas
+-- (transações manuais ficam com NULL, permitido mais de uma vez pela chave única)
+ALTER TABLE transactions
+    ADD COLUMN fingerprint VARCHAR(64),
+    ADD CONSTRAINT uk_transactions_user_fingerprint UNIQUE (user_id, fingerprint);
+
+-- Totais do dashboard e agrupamento por categoria: WHERE user_id = ? AND type = ?
+-- AND transaction_date BETWEEN ... GROUP BY category, coberto pelo índice
+CREATE INDEX idx_transactions_user_type_date_category
+    ON transactions (user_id, type, transaction_date, category, amount);
+
+-- Totais mensais (rollup) por usuário, tipo e categoria
+CREATE TABLE monthly_summaries (
+    id                BIGINT                      NOT NULL AUTO_INCREMENT,
+    user_id           BIGINT                      NOT NULL,
+    month_start       DATE                        NOT NULL,
+    type              ENUM ('DESPESA', 'RECEITA') NOT NULL,
+    category          VARCHAR(255)                NOT NULL,
+    total_amount      DECIMAL(19, 2)              NOT NULL,
+    transaction_count BIGINT                      NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_monthly_summaries_user_month_type_category UNIQUE (user_id, month_start, type, category),
+    CONSTRAINT fk_monthly_summaries_user FOREIGN KEY (user_id) REFERENCES users (id)
+) ENGINE = InnoDB;
@@ -0,0 +1,11 @@
+-- ===================================================================
+-- Totais mensais das transações já existentes quando monthly_summaries foi
+-- criada (V5). A partir daqui a tabela é mantida na mesma transação de cada
+-- inserção, alteração e exclusão.
+-- ===================================================================
+
+INSERT INTO monthly_summaries (user_id, month_start, type, category, total_amount, transaction_count)
+SELECT user_id, DATE_FORMAT(transaction_date, '%Y-%m-01'), type, COALESCE(category, ''), SUM(amount), COUNT(*)
+FROM transactions
+GROUP BY user_id, DATE_FORMAT(transaction_date, '%Y-%m-01'), type, COALESCE(category, '')
+ON DUPLICATE KEY UPDATE total_amount = VALUES(total_amount), transaction_count = VALUES(transaction_count);
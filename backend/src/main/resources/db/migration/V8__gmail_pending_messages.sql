@@ -0,0 +1,14 @@
+-- ===================================================================
+-- Mensagens do Gmail encontradas na última análise de cada usuário. O checkpoint
+-- pendente (users.gmail_pending_*) só vira o checkpoint da sincronização quando
+-- a confirmação cobre todas elas.
+-- ===================================================================
+
+CREATE TABLE gmail_pending_messages (
+    id         BIGINT       NOT NULL AUTO_INCREMENT,
+    user_id    BIGINT       NOT NULL,
+    message_id VARCHAR(255) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_gmail_pending_messages_user_message UNIQUE (user_id, message_id),
+    CONSTRAINT fk_gmail_pending_messages_user FOREIGN KEY (user_id) REFERENCES users (id)
+) ENGINE = InnoDB;
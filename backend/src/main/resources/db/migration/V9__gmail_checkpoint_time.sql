@@ -0,0 +1,9 @@
+-- ===================================================================
+-- Momento em que o historyId de cada checkpoint do Gmail foi lido. A análise
+-- incremental restringe a busca às mensagens recebidas a partir dele
+-- (after:), em vez de listar de novo todas as mensagens da busca.
+-- ===================================================================
+
+ALTER TABLE users
+    ADD COLUMN gmail_synced_at         DATETIME(6),
+    ADD COLUMN gmail_pending_synced_at DATETIME(6);
@@ -0,0 +1,75 @@
+package com.gustavo.finansync.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Roteamento entre dois bancos H2 em memória, cada um com uma tabela que identifica o banco.
+ */
+class ReadWriteRoutingDataSourceTest {
+
+    private ReplicaMonitor monitor;
+
+    @AfterEach
+    void encerrarMonitor() {
+        if (monitor != null) monitor.shutdown();
+    }
+
+    private static DataSource banco(String nome) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + nome + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS origem (nome VARCHAR(20))");
+        jdbcTemplate.execute("DELETE FROM origem");
+        jdbcTemplate.update("INSERT INTO origem VALUES (?)", nome);
+        return dataSource;
+    }
+
+    private DataSource roteamento(DataSource primary, DataSource replica) {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        monitor = new ReplicaMonitor(replica, Duration.ofSeconds(10), Duration.ofHours(1), false, meterRegistry);
+        monitor.verificar();
+        return new LazyConnectionDataSourceProxy(
+                new ReadWriteRoutingDataSource(primary, replica, monitor, meterRegistry));
+    }
+
+    private static String origem(DataSource dataSource, boolean readOnly) {
+        TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        transaction.setReadOnly(readOnly);
+        return transaction.execute(status ->
+                new JdbcTemplate(dataSource).queryForObject("SELECT nome FROM origem", String.class));
+    }
+
+    @Test
+    void leiturasVaoParaReplicaEEscritasParaPrimario() {
+        DataSource dataSource = roteamento(banco("primario"), banco("replica"));
+
+        assertThat(monitor.isDisponivel()).isTrue();
+        assertThat(origem(dataSource, true)).isEqualTo("replica");
+        assertThat(origem(dataSource, false)).isEqualTo("primario");
+        assertThat(new JdbcTemplate(dataSource).queryForObject("SELECT nome FROM origem", String.class))
+                .isEqualTo("primario");
+    }
+
+    @Test
+    void leiturasVoltamAoPrimarioComReplicaFora() {
+        DataSource replicaFora = new DriverManagerDataSource(
+                "jdbc:h2:mem:inexistente;IFEXISTS=TRUE", "sa", "");
+        DataSource dataSource = roteamento(banco("primario"), replicaFora);
+
+        assertThat(monitor.isDisponivel()).isFalse();
+        assertThat(origem(dataSource, true)).isEqualTo("primario");
+        assertThat(monitor.health().getDetails()).containsEntry("roteamento", "primario");
+    }
+}
@@ -0,0 +1,126 @@
+package com.gustavo.finansync.config;
+
+import com.gustavo.finansync.entity.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Roteamento com JPA e open-in-view: o mesmo EntityManager atravessa uma transação readOnly
+ * e depois uma escrita, como numa requisição. Primário e réplica são bancos H2 distintos com o
+ * mesmo esquema, então dá para ver em qual deles a escrita foi parar.
+ */
+class ReadWriteRoutingJpaTest {
+
+    private JdbcTemplate primario;
+    private JdbcTemplate replica;
+    private SimpleMeterRegistry meterRegistry;
+    private ReplicaMonitor monitor;
+    private LocalContainerEntityManagerFactoryBean factoryBean;
+    private EntityManagerFactory emf;
+    private TransactionTemplate leitura;
+    private TransactionTemplate escrita;
+
+    @BeforeEach
+    void criarBancos() {
+        DataSource primary = banco("jpa-primario");
+        DataSource replicaDataSource = banco("jpa-replica");
+        primario = new JdbcTemplate(primary);
+        replica = new JdbcTemplate(replicaDataSource);
+
+        meterRegistry = new SimpleMeterRegistry();
+        monitor = new ReplicaMonitor(replicaDataSource, Duration.ofSeconds(10), Duration.ofHours(1), false, meterRegistry);
+        monitor.verificar();
+        DataSource dataSource = new LazyConnectionDataSourceProxy(
+                new ReadWriteRoutingDataSource(primary, replicaDataSource, monitor, meterRegistry));
+
+        // Mesmas propriedades que a aplicação aplica com a réplica ligada
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("hibernate.hbm2ddl.auto", "create-drop");
+        new ReplicaDataSourceConfig().liberarConexaoAoFimDaTransacao().customize(properties);
+
+        factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setPackagesToScan("com.gustavo.finansync.entity");
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setJpaPropertyMap(properties);
+        factoryBean.afterPropertiesSet();
+        emf = factoryBean.getObject();
+
+        // O Hibernate criou o esquema no primário; a réplica recebe uma cópia, sem dados
+        primario.queryForList("SCRIPT NODATA", String.class).forEach(replica::execute);
+
+        JpaTransactionManager transactionManager = new JpaTransactionManager(emf);
+        leitura = new TransactionTemplate(transactionManager);
+        leitura.setReadOnly(true);
+        escrita = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void encerrar() {
+        if (TransactionSynchronizationManager.hasResource(emf)) {
+            EntityManagerHolder holder = (EntityManagerHolder) TransactionSynchronizationManager.unbindResource(emf);
+            holder.getEntityManager().close();
+        }
+        factoryBean.destroy();
+        monitor.shutdown();
+        primario.execute("DROP ALL OBJECTS");
+        replica.execute("DROP ALL OBJECTS");
+    }
+
+    private static DataSource banco(String nome) {
+        return new DriverManagerDataSource("jdbc:h2:mem:" + nome + ";DB_CLOSE_DELAY=-1", "sa", "");
+    }
+
+    private double conexoes(String destino) {
+        return meterRegistry.get("finansync.datasource.connections").tag("target", destino).counter().count();
+    }
+
+    private long contarUsuarios(EntityManager em) {
+        return em.createQuery("SELECT COUNT(u) FROM User u", Long.class).getSingleResult();
+    }
+
+    @Test
+    void escritaDepoisDeLeituraNaMesmaRequisicaoVaiParaOPrimario() {
+        // Como o OpenEntityManagerInViewInterceptor: um EntityManager para a requisição inteira
+        EntityManager em = emf.createEntityManager();
+        TransactionSynchronizationManager.bindResource(emf, new EntityManagerHolder(em));
+
+        double conexoesReplica = conexoes("replica");
+
+        long usuarios = leitura.execute(status -> contarUsuarios(em));
+        assertThat(usuarios).isZero();
+        assertThat(conexoes("replica")).isEqualTo(conexoesReplica + 1);
+
+        User user = new User("Usuário", "usuario@teste.com", "12345678");
+        // Sem o AuditingEntityListener configurado neste teste
+        user.setCreatedAt(LocalDateTime.now());
+        escrita.executeWithoutResult(status -> em.persist(user));
+
+        assertThat(primario.queryForObject("SELECT COUNT(*) FROM users", Long.class)).isEqualTo(1);
+        assertThat(replica.queryForObject("SELECT COUNT(*) FROM users", Long.class)).isZero();
+        // Nova leitura na mesma requisição volta para a réplica
+        leitura.executeWithoutResult(status -> contarUsuarios(em));
+        assertThat(conexoes("replica")).isEqualTo(conexoesReplica + 2);
+    }
+}
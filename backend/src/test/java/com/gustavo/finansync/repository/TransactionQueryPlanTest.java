@@ -0,0 +1,315 @@
+package com.gustavo.finansync.repository;
+
+import com.gustavo.finansync.dto.TransactionDTO;
+import com.gustavo.finansync.entity.TransactionType;
+import com.gustavo.finansync.entity.User;
+import com.mysql.cj.MysqlConnection;
+import com.mysql.cj.Query;
+import com.mysql.cj.interceptors.QueryInterceptor;
+import com.mysql.cj.log.Log;
+import com.mysql.cj.protocol.Resultset;
+import com.mysql.cj.protocol.ServerSession;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Verifica com EXPLAIN, num MySQL real criado pelas migrações do Flyway, que as consultas de
+ * transações usam índice em vez de varrer a tabela. Os métodos do repositório são executados
+ * de verdade e o EXPLAIN é feito sobre o SQL que o Hibernate gerou, com os valores enviados pelo
+ * driver, inclusive os ramos (:x IS NULL OR ...) e o match_against do FULLTEXT.
+ * Requer Docker; sem ele os testes são ignorados.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+class TransactionQueryPlanTest {
+
+    private static final int USUARIOS = 20;
+    private static final int TRANSACOES_POR_USUARIO = 500;
+    private static final LocalDate MARCO = LocalDate.of(2024, 3, 1);
+    private static final LocalDate FIM_DE_MARCO = LocalDate.of(2024, 3, 31);
+
+    @Container
+    private static final MySQLContainer<?> mysql = new MySQLContainer<>("mysql:8.0")
+            .withUrlParam("queryInterceptors", SqlEnviado.class.getName());
+
+    @DynamicPropertySource
+    static void banco(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", mysql::getJdbcUrl);
+        registry.add("spring.datasource.username", mysql::getUsername);
+        registry.add("spring.datasource.password", mysql::getPassword);
+    }
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+
+    @BeforeAll
+    static void prepararBanco() {
+        Flyway.configure()
+                .dataSource(mysql.getJdbcUrl(), mysql.getUsername(), mysql.getPassword())
+                .load()
+                .migrate();
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                mysql.getJdbcUrl(), mysql.getUsername(), mysql.getPassword()));
+
+        for (int u = 1; u <= USUARIOS; u++) {
+            jdbcTemplate.update("INSERT INTO users (id, name, email, password_hash, is_active, created_at) " +
+                    "VALUES (?, ?, ?, 'x', 1, NOW())", u, "Usuário " + u, "usuario" + u + "@teste.com");
+        }
+
+        List<Object[]> linhas = new ArrayList<>();
+        LocalDate inicio = LocalDate.of(2024, 1, 1);
+        for (int u = 1; u <= USUARIOS; u++) {
+            for (int i = 0; i < TRANSACOES_POR_USUARIO; i++) {
+                boolean email = i % 2 == 0;
+                linhas.add(new Object[]{u, "COMPRA LOJA " + (i % 37), i % 5 == 0 ? "RECEITA" : "DESPESA",
+                        Date.valueOf(inicio.plusDays(i % 365)), "Categoria " + (i % 8),
+                        email ? "EMAIL_IMPORT" : "MANUAL", email ? "msg-" + u + "-" + (i / 10) : null,
+                        email ? String.format("%064d", u * 100_000L + i) : null});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO transactions (user_id, description, amount, type, transaction_date, " +
+                "category, source, email_message_id, fingerprint, created_at) " +
+                "VALUES (?, ?, 10.00, ?, ?, ?, ?, ?, ?, NOW())", linhas);
+        jdbcTemplate.execute("ANALYZE TABLE transactions");
+    }
+
+    @BeforeEach
+    void usuario() {
+        user = userRepository.getReferenceById(7L);
+    }
+
+    @Test
+    void listagemPorUsuarioUsaIndiceSemOrdenacaoEmMemoria() {
+        List<Map<String, Object>> planos = planos(() -> transactionRepository.findByPeriod(user, null, null,
+                PageRequest.of(0, 10, Sort.by("transactionDate").descending().and(Sort.by("id").descending()))));
+
+        // Conteúdo e COUNT
+        assertThat(planos).hasSize(2).allSatisfy(TransactionQueryPlanTest::assertUsaIndice);
+        assertThat(extra(planos.get(0))).doesNotContain("Using filesort");
+    }
+
+    @Test
+    void paginacaoPorCursorSemFiltrosUsaIndiceSemOrdenacaoEmMemoria() {
+        List<Map<String, Object>> planos = planos(() -> transactionRepository.findPageAfterCursor(
+                user, null, null, null, null, LocalDate.of(2024, 6, 1), 3000L, Limit.of(51)));
+
+        assertThat(planos).hasSize(1);
+        assertUsaIndice(planos.get(0));
+        assertThat(extra(planos.get(0))).doesNotContain("Using filesort");
+    }
+
+    @Test
+    void paginacaoPorCursorComPeriodoELikeUsaIndiceSemOrdenacaoEmMemoria() {
+        List<Map<String, Object>> planos = planos(() -> transactionRepository.findPageAfterCursor(
+                user, null, "loja 1", MARCO, FIM_DE_MARCO, null, null, Limit.of(51)));
+
+        assertThat(planos).hasSize(1);
+        assertUsaIndice(planos.get(0));
+        assertThat(extra(planos.get(0))).doesNotContain("Using filesort");
+    }
+
+    @Test
+    void paginacaoPorCursorComTextoUsaIndice() {
+        List<Map<String, Object>> planos = planos(() -> transactionRepository.findPageAfterCursor(
+                user, "+loja*", null, null, null, LocalDate.of(2024, 6, 1), 3000L, Limit.of(51)));
+
+        assertThat(planos).hasSize(1);
+        assertUsaFullText(planos.get(0));
+    }
+
+    @Test
+    void exportacaoComPeriodoUsaIndiceSemOrdenacaoEmMemoria() {
+        List<Map<String, Object>> planos = planos(() -> {
+            try (Stream<TransactionDTO> transactions = transactionRepository.streamByFilter(
+                    user, null, null, MARCO, FIM_DE_MARCO)) {
+                transactions.forEach(dto -> { });
+            }
+        });
+
+        assertThat(planos).hasSize(1);
+        assertUsaIndice(planos.get(0));
+        assertThat(extra(planos.get(0))).doesNotContain("Using filesort");
+    }
+
+    @Test
+    void exportacaoComTextoUsaIndice() {
+        List<Map<String, Object>> planos = planos(() -> {
+            try (Stream<TransactionDTO> transactions = transactionRepository.streamByFilter(
+                    user, "+compra* +loja*", null, null, null)) {
+                transactions.forEach(dto -> { });
+            }
+        });
+
+        assertThat(planos).hasSize(1);
+        assertUsaFullText(planos.get(0));
+    }
+
+    @Test
+    void buscaPaginadaComPeriodoUsaIndice() {
+        List<Map<String, Object>> planos = planos(() -> transactionRepository.findByFilter(
+                user, null, null, MARCO, FIM_DE_MARCO,
+                PageRequest.of(0, 10, Sort.by("transactionDate").descending())));
+
+        assertThat(planos).hasSize(2).allSatisfy(TransactionQueryPlanTest::assertUsaIndice);
+    }
+
+    @Test
+    void buscaPaginadaComTextoELikeUsaIndice() {
+        List<Map<String, Object>> texto = planos(() -> transactionRepository.findByFilter(
+                user, "+loja*", null, null, null, PageRequest.of(0, 10, Sort.by("transactionDate").descending())));
+        List<Map<String, Object>> like = planos(() -> transactionRepository.findByFilter(
+                user, null, "ja 2", null, null, PageRequest.of(0, 10, Sort.by("transactionDate").descending())));
+
+        assertThat(texto).hasSize(2).allSatisfy(TransactionQueryPlanTest::assertUsaFullText);
+        assertThat(like).hasSize(2).allSatisfy(TransactionQueryPlanTest::assertUsaIndice);
+    }
+
+    @Test
+    void somaPorTipoEPeriodoUsaIndice() {
+        List<Map<String, Object>> planos = planos(() -> transactionRepository.sumAmountByUserAndTypeAndDateBetween(
+                user, TransactionType.DESPESA, MARCO, FIM_DE_MARCO));
+
+        assertThat(planos).hasSize(1).allSatisfy(TransactionQueryPlanTest::assertUsaIndice);
+    }
+
+    @Test
+    void agrupamentoPorCategoriaUsaIndice() {
+        List<Map<String, Object>> planos = planos(() -> transactionRepository.sumAmountByCategoryAndPeriod(
+                user, TransactionType.DESPESA, MARCO, null));
+
+        assertThat(planos).hasSize(1).allSatisfy(TransactionQueryPlanTest::assertUsaIndice);
+    }
+
+    @Test
+    void mensagensJaImportadasUsaIndice() {
+        List<Map<String, Object>> planos = planos(() -> transactionRepository.findImportedEmailMessageIds(
+                user, List.of("msg-7-1", "msg-7-2", "msg-7-3")));
+
+        assertThat(planos).hasSize(1).allSatisfy(TransactionQueryPlanTest::assertUsaIndice);
+    }
+
+    @Test
+    void fingerprintsPorPeriodoUsaIndice() {
+        List<Map<String, Object>> planos = planos(() -> transactionRepository.findFingerprintsByUserAndDateBetween(
+                user, MARCO, FIM_DE_MARCO));
+
+        assertThat(planos).hasSize(1).allSatisfy(TransactionQueryPlanTest::assertUsaIndice);
+    }
+
+    /**
+     * Executa a consulta e devolve o EXPLAIN de cada SELECT em transactions enviado ao banco.
+     */
+    private List<Map<String, Object>> planos(Runnable consulta) {
+        SqlEnviado.capturados.clear();
+        SqlEnviado.capturando = true;
+        try {
+            consulta.run();
+        } finally {
+            SqlEnviado.capturando = false;
+        }
+        List<Map<String, Object>> planos = new ArrayList<>();
+        for (String sql : SqlEnviado.capturados) {
+            List<Map<String, Object>> linhas = jdbcTemplate.queryForList("EXPLAIN " + sql);
+            assertThat(linhas).as("EXPLAIN de %s", sql).hasSize(1);
+            Map<String, Object> plano = linhas.get(0);
+            plano.put("sql", sql);
+            planos.add(plano);
+        }
+        return planos;
+    }
+
+    private static void assertUsaIndice(Map<String, Object> plano) {
+        assertThat(plano.get("type")).as("tipo de acesso em %s", plano).isNotEqualTo("ALL");
+        assertThat(plano.get("key")).as("índice usado em %s", plano).isNotNull();
+    }
+
+    private static void assertUsaFullText(Map<String, Object> plano) {
+        // O ramo ':fullText IS NULL' é descartado pelo otimizador e o MATCH usa o índice FULLTEXT
+        assertThat(plano.get("key")).as("índice usado em %s", plano).isEqualTo("ft_transactions_description");
+    }
+
+    private static String extra(Map<String, Object> plano) {
+        Object extra = plano.get("Extra");
+        return extra != null ? extra.toString() : "";
+    }
+
+    /**
+     * Interceptador do driver (queryInterceptors na URL) que guarda os SELECTs em transactions
+     * como enviados ao servidor, já com os parâmetros.
+     */
+    public static class SqlEnviado implements QueryInterceptor {
+
+        static final List<String> capturados = new CopyOnWriteArrayList<>();
+        static volatile boolean capturando;
+
+        @Override
+        public QueryInterceptor init(MysqlConnection conn, Properties props, Log log) {
+            return this;
+        }
+
+        @Override
+        public <T extends Resultset> T preProcess(Supplier<String> sql, Query interceptedQuery) {
+            if (capturando) {
+                String texto = sql.get();
+                String normalizado = texto.trim().toLowerCase(Locale.ROOT);
+                if (normalizado.startsWith("select") && normalizado.contains("transactions")) {
+                    capturados.add(texto);
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public <T extends Resultset> T postProcess(Supplier<String> sql, Query interceptedQuery,
+                                                   T originalResultSet, ServerSession serverSession) {
+            return null;
+        }
+
+        @Override
+        public boolean executeTopLevelOnly() {
+            return false;
+        }
+
+        @Override
+        public void destroy() {
+        }
+    }
+}
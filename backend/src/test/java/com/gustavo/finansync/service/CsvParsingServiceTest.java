@@ -0,0 +1,157 @@
+package com.gustavo.finansync.service;
+
+import com.gustavo.finansync.config.FormatosExtratoConfig;
+import com.gustavo.finansync.dto.TransactionDTO;
+import com.gustavo.finansync.entity.TransactionType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Parse paralelo de arquivos (parseArquivo) comparado ao parse sequencial (streamCsv).
+ */
+class CsvParsingServiceTest {
+
+    @TempDir
+    Path diretorio;
+
+    private CsvParsingService service;
+
+    @BeforeEach
+    void criarServico() {
+        FormatosExtratoConfig config = new FormatosExtratoConfig();
+        FormatoExtratoRegistry formatos = new FormatoExtratoRegistry(
+                List.of(config.extratoContaCorrente(), config.nubankConta(), config.nubankCartao()));
+        service = new CsvParsingService(new SimpleMeterRegistry(), formatos, 3);
+    }
+
+    @AfterEach
+    void encerrarServico() {
+        service.shutdown();
+    }
+
+    private List<TransactionDTO> paralelo(Path arquivo) throws IOException {
+        List<TransactionDTO> transactions = new ArrayList<>();
+        long total = service.parseArquivo(arquivo, transactions::add);
+        assertThat(total).isEqualTo(transactions.size());
+        return transactions;
+    }
+
+    private List<TransactionDTO> sequencial(Path arquivo) throws IOException {
+        InputStream entrada = Files.newInputStream(arquivo);
+        try (Stream<TransactionDTO> transactions = service.streamCsv(entrada)) {
+            return transactions.toList();
+        }
+    }
+
+    private Path gravar(String nome, String conteudo, Charset charset, boolean bom) throws IOException {
+        Path arquivo = diretorio.resolve(nome);
+        byte[] bytes = conteudo.getBytes(charset);
+        if (bom) {
+            byte[] comBom = new byte[bytes.length + 3];
+            comBom[0] = (byte) 0xEF;
+            comBom[1] = (byte) 0xBB;
+            comBom[2] = (byte) 0xBF;
+            System.arraycopy(bytes, 0, comBom, 3, bytes.length);
+            bytes = comBom;
+        }
+        Files.write(arquivo, bytes);
+        return arquivo;
+    }
+
+    @Test
+    void arquivoEmVariosBlocosTemAMesmaSaidaENaMesmaOrdemDoStream() throws IOException {
+        // Conta corrente em Windows-1252: 5 linhas de metadados, cabeçalho, quebras \n e \r\n misturadas,
+        // descrições de tamanhos variados para que as fronteiras dos blocos caiam no meio das linhas
+        Random random = new Random(42);
+        StringBuilder csv = new StringBuilder()
+                .append("Banco Exemplo S.A.\n")
+                .append("Agência: 0001;Conta: 12345-6\n")
+                .append("Período: 01/01/2024 a 31/12/2024\n")
+                .append("Saldo anterior;1.000,00\n")
+                .append("\n")
+                .append("Data Lançamento;Histórico;Descrição;Valor;Saldo\r\n");
+        int esperadas = 0;
+        for (int i = 0; i < 40_000; i++) {
+            String quebra = random.nextBoolean() ? "\r\n" : "\n";
+            switch (i % 50) {
+                case 7 -> csv.append(quebra);                                     // em branco
+                case 13 -> csv.append("10/04/2024;Compra;Inválida;abc;0,00").append(quebra);   // valor inválido
+                case 29 -> {
+                    csv.append("02/03/2024;\"Pix; enviado\";\"Açougue São José\";-45,90;10,00").append(quebra);
+                    esperadas++;
+                }
+                default -> {
+                    String descricao = "Compra " + i + " " + "x".repeat(random.nextInt(120));
+                    csv.append(String.format("%02d/%02d/2024;Débito;%s;%s%d.%03d,%02d;1,00",
+                                    1 + random.nextInt(28), 1 + random.nextInt(12), descricao,
+                                    random.nextBoolean() ? "-" : "", random.nextInt(9) + 1, random.nextInt(1000),
+                                    random.nextInt(100)))
+                            .append(quebra);
+                    esperadas++;
+                }
+            }
+        }
+        // Última linha sem quebra
+        csv.append("15/06/2024;Crédito;Salário;3.500,00;9.999,99");
+        esperadas++;
+        Path arquivo = gravar("conta.csv", csv.toString(), Charset.forName("windows-1252"), false);
+        // Blocos têm no mínimo 256 KB: o arquivo é dividido em mais de dez
+        assertThat(Files.size(arquivo)).isGreaterThan(3L * 1024 * 1024);
+
+        List<TransactionDTO> paralelo = paralelo(arquivo);
+
+        assertThat(paralelo).hasSize(esperadas);
+        assertThat(paralelo).isEqualTo(sequencial(arquivo));
+        assertThat(paralelo.get(0).description()).startsWith("Débito - Compra 0");
+        assertThat(paralelo).contains(new TransactionDTO(null, "Pix; enviado - Açougue São José", null,
+                new BigDecimal("-45.90"), LocalDate.of(2024, 3, 2), TransactionType.DESPESA));
+        assertThat(paralelo.get(paralelo.size() - 1)).isEqualTo(new TransactionDTO(null, "Crédito - Salário", null,
+                new BigDecimal("3500.00"), LocalDate.of(2024, 6, 15), TransactionType.RECEITA));
+        assertThat(paralelo).noneMatch(dto -> dto.description().contains("\r"));
+    }
+
+    @Test
+    void arquivoComCrlfEBomPulaApenasOCabecalho() throws IOException {
+        StringBuilder csv = new StringBuilder("date,title,amount\r\n");
+        for (int i = 0; i < 30_000; i++) {
+            csv.append(String.format("2024-%02d-%02d,Compra número %d,%d.%02d\r\n", 1 + i % 12, 1 + i % 28, i, i % 500, i % 100));
+        }
+        Path arquivo = gravar("fatura.csv", csv.toString(), StandardCharsets.UTF_8, true);
+
+        List<TransactionDTO> paralelo = paralelo(arquivo);
+
+        assertThat(paralelo).hasSize(30_000).isEqualTo(sequencial(arquivo));
+        assertThat(paralelo.get(0).description()).isEqualTo("Compra número 0");
+        // Fatura de cartão: compras positivas viram despesas
+        assertThat(paralelo.get(1).amount()).isEqualByComparingTo("-1.01");
+        assertThat(paralelo.get(29_999).description()).isEqualTo("Compra número 29999");
+    }
+
+    @Test
+    void arquivoMenorQueUmBlocoOuSemLinhas() throws IOException {
+        Path pequeno = gravar("pequeno.csv", "Data,Valor,Identificador,Descrição\n01/02/2024,-12.34,abc,Mercado\n",
+                StandardCharsets.UTF_8, false);
+        Path soCabecalho = gravar("cabecalho.csv", "Data,Valor,Identificador,Descrição\n", StandardCharsets.UTF_8, false);
+
+        assertThat(paralelo(pequeno)).isEqualTo(sequencial(pequeno)).hasSize(1);
+        assertThat(paralelo(soCabecalho)).isEmpty();
+    }
+}
@@ -0,0 +1,163 @@
+package com.gustavo.finansync.service;
+
+import com.gustavo.finansync.config.FormatosExtratoConfig;
+import com.gustavo.finansync.dto.TransactionDTO;
+import com.gustavo.finansync.entity.TransactionType;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Detecção de formato e charset a partir do início do arquivo, com os formatos da aplicação.
+ */
+class FormatoExtratoRegistryTest {
+
+    private static final Charset WINDOWS_1252 = Charset.forName("windows-1252");
+
+    private final FormatosExtratoConfig config = new FormatosExtratoConfig();
+    private final FormatoExtratoRegistry registry = new FormatoExtratoRegistry(
+            List.of(config.extratoContaCorrente(), config.nubankConta(), config.nubankCartao()));
+
+    private LayoutExtrato detectar(String conteudo, Charset charset) {
+        byte[] bytes = conteudo.getBytes(charset);
+        return registry.detectar(bytes, bytes.length, true);
+    }
+
+    private static byte[] comBom(byte[] bytes) {
+        byte[] resultado = new byte[bytes.length + 3];
+        resultado[0] = (byte) 0xEF;
+        resultado[1] = (byte) 0xBB;
+        resultado[2] = (byte) 0xBF;
+        System.arraycopy(bytes, 0, resultado, 3, bytes.length);
+        return resultado;
+    }
+
+    private static TransactionDTO converter(LayoutExtrato layout, String linha) {
+        return layout.converter(layout.campos(linha));
+    }
+
+    @Test
+    void detectaContaCorrentePeloCabecalhoAposOsMetadados() {
+        LayoutExtrato layout = detectar("""
+                Banco Exemplo S.A.
+                Agência: 0001;Conta: 12345-6
+                Período: 01/01/2024 a 31/01/2024
+                Saldo anterior;1.000,00
+
+                Data Lançamento;Histórico;Descrição;Valor;Saldo
+                02/01/2024;Pix enviado;Mercado;-1.234,56;10,00
+                """, StandardCharsets.UTF_8);
+
+        assertThat(layout.formato().nome()).isEqualTo("conta-corrente");
+        assertThat(layout.linhasAntesDosDados()).isEqualTo(6);
+        assertThat(converter(layout, "02/01/2024;Pix enviado;Mercado;-1.234,56;10,00")).isEqualTo(new TransactionDTO(
+                null, "Pix enviado - Mercado", null, new BigDecimal("-1234.56"), LocalDate.of(2024, 1, 2), TransactionType.DESPESA));
+    }
+
+    @Test
+    void detectaNubankContaComColunasEmOutraOrdem() {
+        LayoutExtrato layout = detectar("""
+                Descrição,Identificador,Valor,Data
+                Transferência recebida,abc-123,1500.00,05/02/2024
+                """, StandardCharsets.UTF_8);
+
+        assertThat(layout.formato().nome()).isEqualTo("nubank-conta");
+        assertThat(layout.linhasAntesDosDados()).isEqualTo(1);
+        assertThat(converter(layout, "Transferência recebida,abc-123,1500.00,05/02/2024")).isEqualTo(new TransactionDTO(
+                null, "Transferência recebida", null, new BigDecimal("1500.00"), LocalDate.of(2024, 2, 5), TransactionType.RECEITA));
+    }
+
+    @Test
+    void detectaNubankCartaoEInverteOSinal() {
+        LayoutExtrato layout = detectar("date,title,amount\n2024-03-10,Restaurante,89.90\n", StandardCharsets.UTF_8);
+
+        assertThat(layout.formato().nome()).isEqualTo("nubank-cartao");
+        assertThat(converter(layout, "2024-03-10,Restaurante,89.90")).isEqualTo(new TransactionDTO(
+                null, "Restaurante", null, new BigDecimal("-89.90"), LocalDate.of(2024, 3, 10), TransactionType.DESPESA));
+    }
+
+    @Test
+    void semCabecalhoReconhecivelUsaOPreambuloFixo() {
+        // Cabeçalho com nomes que não correspondem, mas a 7ª linha é uma transação de conta corrente
+        LayoutExtrato layout = detectar("""
+                Banco Exemplo S.A.
+                Agência: 0001
+                Conta: 12345-6
+                Período: janeiro/2024
+                Emitido em 01/02/2024
+                Dt;Hist;Desc;Vlr;Sld
+                03/01/2024;Tarifa;Pacote de serviços;-25,00;975,00
+                """, StandardCharsets.UTF_8);
+
+        assertThat(layout.formato().nome()).isEqualTo("conta-corrente");
+        assertThat(layout.linhasAntesDosDados()).isEqualTo(6);
+        assertThat(converter(layout, "03/01/2024;Tarifa;Pacote de serviços;-25,00;975,00").amount())
+                .isEqualByComparingTo("-25.00");
+    }
+
+    @Test
+    void preambuloFixoExigeUmaTransacaoValidaDepoisDele() {
+        assertThatThrownBy(() -> detectar("""
+                a
+                b
+                c
+                d
+                e
+                Dt;Hist;Desc;Vlr;Sld
+                Total;;;-25,00;975,00
+                """, StandardCharsets.UTF_8))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void arquivoDesconhecidoERecusadoListandoOsFormatos() {
+        assertThatThrownBy(() -> detectar("nome;email\nFulano;fulano@teste.com\n", StandardCharsets.UTF_8))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("conta-corrente, nubank-conta, nubank-cartao");
+        assertThatThrownBy(() -> registry.detectar(new byte[0], 0, true))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void arquivoEmWindows1252() {
+        String conteudo = "Descrição,Data,Valor,Identificador\nPadaria São João,01/02/2024,-7.50,x\n";
+        LayoutExtrato layout = detectar(conteudo, WINDOWS_1252);
+
+        assertThat(layout.charset()).isEqualTo(WINDOWS_1252);
+        assertThat(layout.formato().nome()).isEqualTo("nubank-conta");
+        // As linhas são decodificadas com o charset detectado
+        String linha = new String("Padaria São João,01/02/2024,-7.50,x".getBytes(WINDOWS_1252), layout.charset());
+        assertThat(converter(layout, linha).description()).isEqualTo("Padaria São João");
+    }
+
+    @Test
+    void arquivoEmUtf8ComBom() {
+        byte[] bytes = comBom("date,title,amount\n2024-01-15,Café,12.00\n".getBytes(StandardCharsets.UTF_8));
+        LayoutExtrato layout = registry.detectar(bytes, bytes.length, true);
+
+        assertThat(layout.charset()).isEqualTo(StandardCharsets.UTF_8);
+        // O BOM não impede o reconhecimento da primeira coluna do cabeçalho
+        assertThat(layout.formato().nome()).isEqualTo("nubank-cartao");
+    }
+
+    @Test
+    void caractereCortadoNoFimDaAmostraNaoMudaOCharset() {
+        byte[] arquivo = "Data,Valor,Identificador,Descrição\n01/02/2024,-7.50,x,Pão\n".getBytes(StandardCharsets.UTF_8);
+        // Amostra termina no meio do "ã" (2 bytes em UTF-8)
+        int corte = arquivo.length - 3;
+        byte[] amostra = Arrays.copyOf(arquivo, corte);
+
+        LayoutExtrato layout = registry.detectar(amostra, corte, false);
+
+        assertThat(layout.charset()).isEqualTo(StandardCharsets.UTF_8);
+        assertThat(layout.formato().nome()).isEqualTo("nubank-conta");
+    }
+}
@@ -0,0 +1,290 @@
+package com.gustavo.finansync.service;
+
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import com.google.api.services.gmail.Gmail;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Busca de anexos contra um Gmail simulado no transporte HTTP: endpoint batch (multipart) para as
+ * mensagens e uma requisição por anexo. Cada mensagem msg-N tem um anexo extrato-N.csv.
+ */
+class GmailServiceTest {
+
+    private static final Pattern ID_NO_LOTE = Pattern.compile("/messages/([^/?\\s]+)\\?");
+    private static final Pattern ID_DO_ANEXO = Pattern.compile("/messages/([^/?]+)/attachments/");
+    private static final String ERRO_LIMITE = "{\"error\":{\"code\":429,\"message\":\"Too many concurrent requests for user\"," +
+            "\"errors\":[{\"reason\":\"rateLimitExceeded\",\"message\":\"Too many concurrent requests for user\"}]}}";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private GmailService service;
+
+    @AfterEach
+    void encerrarServico() {
+        if (service != null) service.shutdown();
+    }
+
+    private GmailService servico(int concorrenciaPorUsuario) {
+        service = new GmailService(8, concorrenciaPorUsuario, 5, Duration.ofMillis(1), meterRegistry);
+        return service;
+    }
+
+    private static List<String> ids(int quantidade) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 1; i <= quantidade; i++) {
+            ids.add("msg-" + i);
+        }
+        return ids;
+    }
+
+    private static String ler(GmailService.AnexoCsv anexo) throws IOException {
+        try (InputStream conteudo = anexo.conteudo()) {
+            return new String(conteudo.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static Set<Path> anexosTemporarios() throws IOException {
+        Set<Path> arquivos = new HashSet<>();
+        try (DirectoryStream<Path> dir = Files.newDirectoryStream(
+                Path.of(System.getProperty("java.io.tmpdir")), "finansync-anexo-*")) {
+            dir.forEach(arquivos::add);
+        }
+        return arquivos;
+    }
+
+    @Test
+    void limiteDeTaxaEErroDoServidorSaoRepetidos() throws Exception {
+        AtomicInteger lotes = new AtomicInteger();
+        Map<String, AtomicInteger> downloads = new ConcurrentHashMap<>();
+        GmailFalso gmail = new GmailFalso() {
+            @Override
+            Resposta lote(List<String> ids) {
+                return switch (lotes.incrementAndGet()) {
+                    case 1 -> new Resposta(503, "{\"error\":{\"code\":503,\"message\":\"Backend Error\"}}");
+                    // msg-2 recusada dentro do lote: só ela é reenviada
+                    case 2 -> loteComRecusa(ids, "msg-2");
+                    default -> super.lote(ids);
+                };
+            }
+
+            @Override
+            Resposta anexo(String messageId) throws IOException {
+                int tentativa = downloads.computeIfAbsent(messageId, id -> new AtomicInteger()).incrementAndGet();
+                return messageId.equals("msg-3") && tentativa <= 2 ? new Resposta(429, ERRO_LIMITE) : super.anexo(messageId);
+            }
+        };
+
+        List<GmailService.AnexoCsv> anexos = servico(4).buscarAnexosCsv(
+                gmail.cliente(), "me", "usuario@teste.com", ids(3), ImportProgress.NENHUM);
+
+        assertThat(anexos).extracting(GmailService.AnexoCsv::messageId).containsExactly("msg-1", "msg-2", "msg-3");
+        for (GmailService.AnexoCsv anexo : anexos) {
+            assertThat(ler(anexo)).isEqualTo("conteúdo de " + anexo.messageId());
+        }
+        assertThat(lotes).hasValue(3);
+        assertThat(gmail.idsPorLote.get(2)).containsExactly("msg-2");
+        assertThat(downloads.get("msg-3")).hasValue(3);
+        assertThat(meterRegistry.get("finansync.gmail.retries").tag("operation", "messages.batchGet").counter().count())
+                .isEqualTo(2);
+        assertThat(meterRegistry.get("finansync.gmail.retries").tag("operation", "attachments.get").counter().count())
+                .isEqualTo(2);
+    }
+
+    @Test
+    void erroDefinitivoNaoERepetido() {
+        AtomicInteger chamadas = new AtomicInteger();
+        GmailFalso gmail = new GmailFalso() {
+            @Override
+            Resposta anexo(String messageId) {
+                chamadas.incrementAndGet();
+                return new Resposta(404, "{\"error\":{\"code\":404,\"message\":\"Requested entity was not found.\"}}");
+            }
+        };
+
+        assertThatThrownBy(() -> servico(4).buscarAnexosCsv(
+                gmail.cliente(), "me", "usuario@teste.com", ids(1), ImportProgress.NENHUM))
+                .isInstanceOf(GoogleJsonResponseException.class);
+        assertThat(chamadas).hasValue(1);
+    }
+
+    @Test
+    void falhaCancelaOsDownloadsPendentesEApagaOsJaBaixados() throws Exception {
+        Set<Path> antes = anexosTemporarios();
+        AtomicInteger iniciados = new AtomicInteger();
+        GmailFalso gmail = new GmailFalso() {
+            @Override
+            Resposta anexo(String messageId) throws IOException {
+                iniciados.incrementAndGet();
+                if (messageId.equals("msg-5")) {
+                    return new Resposta(400, "{\"error\":{\"code\":400,\"message\":\"Invalid id\"}}");
+                }
+                esperar(100);
+                return super.anexo(messageId);
+            }
+        };
+
+        assertThatThrownBy(() -> servico(2).buscarAnexosCsv(
+                gmail.cliente(), "me", "usuario@teste.com", ids(40), ImportProgress.NENHUM))
+                .isInstanceOf(GoogleJsonResponseException.class);
+
+        // Os downloads ainda na fila foram cancelados antes de chegar ao Gmail
+        assertThat(iniciados.get()).isLessThan(10);
+        // Os interrompidos no meio apagam o próprio arquivo ao terminar
+        long limite = System.currentTimeMillis() + 5_000;
+        while (!antes.containsAll(anexosTemporarios()) && System.currentTimeMillis() < limite) {
+            esperar(20);
+        }
+        assertThat(anexosTemporarios()).isSubsetOf(antes);
+    }
+
+    @Test
+    void concorrenciaLimitadaPorUsuario() throws Exception {
+        AtomicInteger emAndamento = new AtomicInteger();
+        AtomicInteger maximo = new AtomicInteger();
+        GmailFalso gmail = new GmailFalso() {
+            @Override
+            Resposta anexo(String messageId) throws IOException {
+                maximo.accumulateAndGet(emAndamento.incrementAndGet(), Math::max);
+                try {
+                    esperar(30);
+                    return super.anexo(messageId);
+                } finally {
+                    emAndamento.decrementAndGet();
+                }
+            }
+        };
+        GmailService gmailService = servico(3);
+
+        // Duas sincronizações simultâneas do mesmo usuário dividem o limite
+        Thread outra = new Thread(() -> {
+            try {
+                GmailService.descartar(gmailService.buscarAnexosCsv(
+                        gmail.cliente(), "me", "usuario@teste.com", ids(12), ImportProgress.NENHUM));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        outra.start();
+        List<GmailService.AnexoCsv> anexos = gmailService.buscarAnexosCsv(
+                gmail.cliente(), "me", "usuario@teste.com", ids(12), ImportProgress.NENHUM);
+        outra.join();
+        GmailService.descartar(anexos);
+
+        assertThat(anexos).hasSize(12);
+        assertThat(maximo.get()).isBetween(2, 3);
+    }
+
+    private static void esperar(long millis) throws InterruptedIOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    private record Resposta(int status, String json) {
+    }
+
+    /**
+     * Responde ao endpoint batch e aos downloads de anexo; as subclasses trocam as respostas.
+     */
+    private static class GmailFalso {
+
+        final List<List<String>> idsPorLote = new ArrayList<>();
+
+        Resposta lote(List<String> ids) {
+            return loteComRecusa(ids, null);
+        }
+
+        Resposta anexo(String messageId) throws IOException {
+            String conteudo = "conteúdo de " + messageId;
+            return new Resposta(200, "{\"data\": \"" + Base64.getUrlEncoder()
+                    .encodeToString(conteudo.getBytes(StandardCharsets.UTF_8)) + "\"}");
+        }
+
+        Resposta loteComRecusa(List<String> ids, String recusada) {
+            StringBuilder multipart = new StringBuilder();
+            for (int i = 0; i < ids.size(); i++) {
+                String id = ids.get(i);
+                String json = id.equals(recusada) ? ERRO_LIMITE :
+                        "{\"id\":\"" + id + "\",\"payload\":{\"parts\":[{\"filename\":\"\"}," +
+                        "{\"filename\":\"extrato-" + id + ".csv\",\"body\":{\"attachmentId\":\"att-" + id + "\"}}]}}";
+                multipart.append("--lote\r\n")
+                        .append("Content-Type: application/http\r\n")
+                        .append("Content-ID: <response-").append(i + 1).append(">\r\n\r\n")
+                        .append(id.equals(recusada) ? "HTTP/1.1 429 Too Many Requests\r\n" : "HTTP/1.1 200 OK\r\n")
+                        .append("Content-Type: application/json; charset=UTF-8\r\n\r\n")
+                        .append(json).append("\r\n");
+            }
+            multipart.append("--lote--\r\n");
+            return new Resposta(200, multipart.toString());
+        }
+
+        Gmail cliente() {
+            MockHttpTransport transport = new MockHttpTransport() {
+                @Override
+                public LowLevelHttpRequest buildRequest(String method, String url) {
+                    return new MockLowLevelHttpRequest(url) {
+                        @Override
+                        public LowLevelHttpResponse execute() throws IOException {
+                            if (url.contains("/batch")) {
+                                List<String> ids = new ArrayList<>();
+                                Matcher matcher = ID_NO_LOTE.matcher(getContentAsString());
+                                while (matcher.find()) {
+                                    ids.add(matcher.group(1));
+                                }
+                                synchronized (idsPorLote) {
+                                    idsPorLote.add(ids);
+                                }
+                                return resposta(lote(ids), "multipart/mixed; boundary=lote");
+                            }
+                            Matcher matcher = ID_DO_ANEXO.matcher(url);
+                            if (!matcher.find()) throw new IOException("URL inesperada: " + url);
+                            return resposta(anexo(matcher.group(1)), "application/json; charset=UTF-8");
+                        }
+                    };
+                }
+            };
+            return new Gmail.Builder(transport, GsonFactory.getDefaultInstance(), null)
+                    .setApplicationName("finansync-teste")
+                    .build();
+        }
+
+        private static LowLevelHttpResponse resposta(Resposta resposta, String contentType) {
+            return new MockLowLevelHttpResponse()
+                    .setStatusCode(resposta.status())
+                    .setContentType(resposta.status() == 200 ? contentType : "application/json; charset=UTF-8")
+                    .setContent(resposta.json());
+        }
+    }
+}
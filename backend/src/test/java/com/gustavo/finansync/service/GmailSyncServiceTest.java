@@ -0,0 +1,214 @@
+package com.gustavo.finansync.service;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.gustavo.finansync.config.FormatosExtratoConfig;
+import com.gustavo.finansync.dto.ImportJobDTO;
+import com.gustavo.finansync.entity.GmailPendingMessage;
+import com.gustavo.finansync.entity.User;
+import com.gustavo.finansync.repository.GmailPendingMessageRepository;
+import com.gustavo.finansync.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checkpoint da sincronização do Gmail ao longo de análises (jobs) e confirmações, com o Gmail
+ * simulado e os repositórios num H2. Cada mensagem msg-N tem um anexo com o conteúdo de ANEXOS.
+ */
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"})
+@Import(GmailSyncService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class GmailSyncServiceTest {
+
+    private static final String QUERY = "from:banco@teste.com subject:\"Extrato\" has:attachment";
+    private static final Map<String, String> ANEXOS = Map.of(
+            "msg-1", "date,title,amount\n2024-03-10,Restaurante,89.90\n2024-03-11,Mercado,120.00\n",
+            "msg-2", "nome;email\nFulano;fulano@teste.com\n",
+            "msg-3", "date,title,amount\n2024-03-12,Farmácia,35.00\n",
+            "msg-4", "date,title,amount\n2024-04-02,Padaria,7.50\n",
+            // Extrato reconhecido, mas sem nenhum lançamento
+            "msg-5", "date,title,amount\n");
+
+    @MockitoBean
+    private GmailService gmailService;
+
+    @Autowired
+    private GmailSyncService gmailSyncService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private GmailPendingMessageRepository gmailPendingMessageRepository;
+
+    @TempDir
+    Path diretorio;
+
+    private ImportJobService importJobService;
+    private CsvParsingService csvParsingService;
+    private Long userId;
+
+    @BeforeEach
+    void criarUsuario() throws Exception {
+        userId = userRepository.save(new User("Usuário", "usuario@teste.com", "12345678")).getId();
+
+        FormatosExtratoConfig config = new FormatosExtratoConfig();
+        csvParsingService = new CsvParsingService(new SimpleMeterRegistry(), new FormatoExtratoRegistry(
+                List.of(config.extratoContaCorrente(), config.nubankConta(), config.nubankCartao())), 1);
+        importJobService = new ImportJobService(mock(GmailAuthService.class), gmailSyncService, csvParsingService,
+                mock(TransactionService.class), userRepository, JsonMapper.builder().findAndAddModules().build(),
+                1, 5, Duration.ofMinutes(5));
+
+        when(gmailService.montarQuery(anyString(), anyString())).thenReturn(QUERY);
+        when(gmailService.buscarAnexosCsv(any(), anyString(), anyString(), anyList(), any())).thenAnswer(invocation -> {
+            List<GmailService.AnexoCsv> anexos = new ArrayList<>();
+            for (String id : invocation.<List<String>>getArgument(3)) {
+                Path arquivo = Files.writeString(diretorio.resolve(id + ".csv"), ANEXOS.get(id));
+                anexos.add(new GmailService.AnexoCsv(id, id + ".csv", arquivo));
+            }
+            return anexos;
+        });
+    }
+
+    @AfterEach
+    void limpar() {
+        importJobService.shutdown();
+        csvParsingService.shutdown();
+        gmailPendingMessageRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    private User usuario() {
+        return userRepository.findById(userId).orElseThrow();
+    }
+
+    private List<String> pendentes() {
+        return gmailPendingMessageRepository.findAll().stream().map(GmailPendingMessage::getMessageId).sorted().toList();
+    }
+
+    // Análise completa (sem checkpoint) que encontra as mensagens informadas
+    private void primeiraAnalise(long historyId, String... ids) throws Exception {
+        when(gmailService.obterHistoryIdAtual(any(), anyString())).thenReturn(BigInteger.valueOf(historyId));
+        when(gmailService.listarMensagens(any(), anyString(), anyString())).thenReturn(new ArrayList<>(List.of(ids)));
+        analisar();
+    }
+
+    private void analisar() throws Exception {
+        ImportJobDTO job = importJobService.iniciar(userId, "usuario@teste.com", "banco@teste.com", "Extrato");
+        long limite = System.currentTimeMillis() + 10_000;
+        while (!job.status().equals("CONCLUIDO") && !job.status().equals("FALHOU") && System.currentTimeMillis() < limite) {
+            Thread.sleep(20);
+            job = importJobService.status(job.id(), userId);
+        }
+        assertThat(job.status()).as(job.erro()).isEqualTo("CONCLUIDO");
+    }
+
+    @Test
+    void mensagemComAnexoNaoReconhecidoNaoSeguraOCheckpoint() throws Exception {
+        primeiraAnalise(200, "msg-1", "msg-2");
+
+        // msg-2 não rendeu transações: só msg-1 fica esperando a confirmação
+        assertThat(pendentes()).containsExactly("msg-1");
+        assertThat(usuario().getGmailHistoryId()).isNull();
+        assertThat(usuario().getGmailPendingHistoryId()).isEqualTo(200);
+
+        gmailSyncService.confirmarSincronizacao(usuario(), Set.of("msg-1"));
+
+        assertThat(pendentes()).isEmpty();
+        assertThat(usuario().getGmailHistoryId()).isEqualTo(200);
+        assertThat(usuario().getGmailSyncQuery()).isEqualTo(QUERY);
+    }
+
+    @Test
+    void analiseSemNenhumaTransacaoAvancaOCheckpointNaHora() throws Exception {
+        primeiraAnalise(200, "msg-2", "msg-5");
+
+        // Nada para revisar nem confirmar
+        assertThat(pendentes()).isEmpty();
+        assertThat(usuario().getGmailHistoryId()).isEqualTo(200);
+        assertThat(usuario().getGmailPendingHistoryId()).isNull();
+    }
+
+    @Test
+    void mensagemDeixadaDeForaVoltaNaAnaliseSeguinte() throws Exception {
+        primeiraAnalise(200, "msg-1", "msg-3");
+        // Linhas de msg-3 desmarcadas na revisão
+        gmailSyncService.confirmarSincronizacao(usuario(), Set.of("msg-1"));
+
+        assertThat(usuario().getGmailHistoryId()).isEqualTo(200);
+        assertThat(pendentes()).containsExactly("msg-3");
+
+        // Próxima análise: só msg-4 chegou depois do checkpoint, e msg-3 volta junto
+        when(gmailService.obterHistoryIdAtual(any(), anyString())).thenReturn(BigInteger.valueOf(300));
+        when(gmailService.listarMensagensAdicionadas(any(), anyString(), any())).thenReturn(Set.of("msg-4"));
+        when(gmailService.listarMensagens(any(), anyString(), anyString())).thenReturn(new ArrayList<>(List.of("msg-4")));
+        analisar();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<String>> ids = ArgumentCaptor.forClass(List.class);
+        verify(gmailService, atLeastOnce()).buscarAnexosCsv(any(), anyString(), anyString(), ids.capture(), any());
+        assertThat(ids.getValue()).containsExactlyInAnyOrder("msg-3", "msg-4");
+        assertThat(pendentes()).containsExactly("msg-3", "msg-4");
+        assertThat(usuario().getGmailPendingHistoryId()).isEqualTo(300);
+    }
+
+    @Test
+    void analiseIncrementalBuscaSoAsMensagensRecebidasDesdeOCheckpoint() throws Exception {
+        Instant antes = Instant.now();
+        primeiraAnalise(200, "msg-1");
+        gmailSyncService.confirmarSincronizacao(usuario(), Set.of("msg-1"));
+        Instant checkpoint = usuario().getGmailSyncedAt();
+        assertThat(checkpoint).isBetween(antes.minusSeconds(1), Instant.now());
+
+        // O histórico traz toda mensagem nova da caixa; a busca com after: diz quais são extratos
+        when(gmailService.obterHistoryIdAtual(any(), anyString())).thenReturn(BigInteger.valueOf(300));
+        when(gmailService.listarMensagensAdicionadas(any(), anyString(), any())).thenReturn(Set.of("msg-4", "msg-8", "msg-9"));
+        String incremental = QUERY + " after:" + checkpoint.minus(Duration.ofDays(1)).getEpochSecond();
+        when(gmailService.listarMensagens(any(), anyString(), eq(incremental))).thenReturn(new ArrayList<>(List.of("msg-4", "msg-7")));
+        analisar();
+
+        // A busca completa só foi feita na primeira análise
+        verify(gmailService, times(1)).listarMensagens(any(), anyString(), eq(QUERY));
+        verify(gmailService).listarMensagens(any(), anyString(), eq(incremental));
+        assertThat(pendentes()).containsExactly("msg-4");
+
+        // Sem mensagens novas no histórico, nem a busca incremental é feita
+        gmailSyncService.confirmarSincronizacao(usuario(), Set.of("msg-4"));
+        when(gmailService.listarMensagensAdicionadas(any(), anyString(), any())).thenReturn(Set.of());
+        analisar();
+        verify(gmailService, times(2)).listarMensagens(any(), anyString(), anyString());
+    }
+}
@@ -0,0 +1,258 @@
+package com.gustavo.finansync.service;
+
+import com.gustavo.finansync.config.FormatosExtratoConfig;
+import com.gustavo.finansync.dto.TransactionDTO;
+import com.gustavo.finansync.entity.TransactionType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Caminho rápido ({@link LinhaExtratoDecoder}) comparado ao caminho tradicional
+ * ({@link CsvParsingService#parseLinhaPadrao}) nos casos de borda. Quando o caminho rápido
+ * converte, o resultado tem que ser idêntico (inclusive a escala do valor); quando não
+ * reconhece a linha, retorna null e a decisão fica com o caminho tradicional.
+ */
+class LinhaExtratoDecoderTest {
+
+    private final FormatosExtratoConfig config = new FormatosExtratoConfig();
+    private final FormatoExtratoRegistry registry = new FormatoExtratoRegistry(
+            List.of(config.extratoContaCorrente(), config.nubankConta(), config.nubankCartao()));
+    private final CsvParsingService service = new CsvParsingService(new SimpleMeterRegistry(), registry, 1);
+
+    private final LayoutExtrato contaCorrente = layout("Data;Histórico;Descrição;Valor;Saldo\n");
+    private final LayoutExtrato nubankConta = layout("Data,Valor,Identificador,Descrição\n");
+    private final LayoutExtrato nubankCartao = layout("date,title,amount\n");
+
+    @AfterEach
+    void encerrarServico() {
+        service.shutdown();
+    }
+
+    private LayoutExtrato layout(String cabecalho) {
+        byte[] bytes = cabecalho.getBytes(StandardCharsets.UTF_8);
+        return registry.detectar(bytes, bytes.length, true);
+    }
+
+    // Caminho rápido converte a linha, com o mesmo resultado do tradicional
+    private TransactionDTO rapidoIgualAoPadrao(LayoutExtrato layout, String linha) {
+        TransactionDTO rapido = layout.decodificar(linha);
+        assertThat(rapido).as(linha).isNotNull();
+        assertThat(rapido).as(linha).isEqualTo(service.parseLinhaPadrao(layout, linha));
+        return rapido;
+    }
+
+    // Caminho rápido recusa a linha e parseLinha devolve o resultado do tradicional
+    private TransactionDTO ficaComOPadrao(LayoutExtrato layout, String linha) {
+        assertThat(layout.decodificar(linha)).as(linha).isNull();
+        TransactionDTO padrao = service.parseLinhaPadrao(layout, linha);
+        assertThat(service.parseLinha(layout, linha)).as(linha).isEqualTo(padrao);
+        return padrao;
+    }
+
+    @Test
+    void separadorDecimalNasPontasDoValor() {
+        TransactionDTO meio = rapidoIgualAoPadrao(contaCorrente, "02/01/2024;Pix;Mercado;,5;0,00");
+        assertThat(meio.amount()).isEqualTo(new BigDecimal("0.5"));
+
+        TransactionDTO semCasas = rapidoIgualAoPadrao(contaCorrente, "02/01/2024;Pix;Mercado;5,;0,00");
+        assertThat(semCasas.amount()).isEqualTo(new BigDecimal("5"));
+
+        assertThat(rapidoIgualAoPadrao(nubankConta, "01/02/2024,.5,x,Mercado").amount()).isEqualTo(new BigDecimal("0.5"));
+        assertThat(rapidoIgualAoPadrao(nubankConta, "01/02/2024,5.,x,Mercado").amount()).isEqualTo(new BigDecimal("5"));
+    }
+
+    @Test
+    void zeroNegativoEReceitaComEscalaPreservada() {
+        TransactionDTO zero = rapidoIgualAoPadrao(contaCorrente, "02/01/2024;Estorno;Loja;-0,00;10,00");
+        assertThat(zero.amount()).isEqualTo(new BigDecimal("0.00"));
+        assertThat(zero.type()).isEqualTo(TransactionType.RECEITA);
+
+        // No cartão o sinal é invertido: -0.00 continua zero e receita
+        assertThat(rapidoIgualAoPadrao(nubankCartao, "2024-01-05,Ajuste,-0.00").type()).isEqualTo(TransactionType.RECEITA);
+    }
+
+    @Test
+    void separadoresDeMilharESinais() {
+        assertThat(rapidoIgualAoPadrao(contaCorrente, "02/01/2024;Pix;Aluguel;-1.234.567,89;0,00").amount())
+                .isEqualTo(new BigDecimal("-1234567.89"));
+        assertThat(rapidoIgualAoPadrao(contaCorrente, "02/01/2024;Pix;Salário;+3.500,00;0,00").amount())
+                .isEqualTo(new BigDecimal("3500.00"));
+        assertThat(rapidoIgualAoPadrao(nubankConta, "01/02/2024,\t1234.5 ,x, Mercado ").description())
+                .isEqualTo("Mercado");
+    }
+
+    @Test
+    void valorForaDoComumFicaComOPadrao() {
+        // Sem dígitos, dois separadores decimais, moeda e notação científica
+        assertThat(ficaComOPadrao(contaCorrente, "02/01/2024;Pix;Mercado;-;0,00")).isNull();
+        assertThat(ficaComOPadrao(contaCorrente, "02/01/2024;Pix;Mercado;1,2,3;0,00")).isNull();
+        assertThat(ficaComOPadrao(contaCorrente, "02/01/2024;Pix;Mercado;R$ 5,00;0,00")).isNull();
+        ficaComOPadrao(nubankConta, "01/02/2024,1e3,x,Mercado");
+        // Mais dígitos do que cabem num long
+        assertThat(ficaComOPadrao(nubankConta, "01/02/2024,1234567890123456789.01,x,Mercado").amount())
+                .isEqualTo(new BigDecimal("1234567890123456789.01"));
+    }
+
+    @Test
+    void dataInexistenteFicaComOPadrao() {
+        // LocalDate.of recusa 31/04 e 29/02 fora de ano bissexto; o DateTimeFormatter do caminho
+        // tradicional (ResolverStyle.SMART) ajusta para o último dia do mês
+        assertThat(ficaComOPadrao(contaCorrente, "31/04/2024;Pix;Mercado;-10,00;0,00").transactionDate())
+                .isEqualTo(LocalDate.of(2024, 4, 30));
+        assertThat(ficaComOPadrao(nubankCartao, "2023-02-29,Restaurante,10.00").transactionDate())
+                .isEqualTo(LocalDate.of(2023, 2, 28));
+        assertThat(rapidoIgualAoPadrao(nubankCartao, "2024-02-29,Restaurante,10.00").transactionDate())
+                .isEqualTo(LocalDate.of(2024, 2, 29));
+        // Mês ou dia fora do intervalo e formato diferente são inválidos nos dois caminhos
+        assertThat(ficaComOPadrao(contaCorrente, "02/13/2024;Pix;Mercado;-10,00;0,00")).isNull();
+        assertThat(ficaComOPadrao(contaCorrente, "2/1/2024;Pix;Mercado;-10,00;0,00")).isNull();
+    }
+
+    @Test
+    void camposEntreAspasFicamComOPadrao() {
+        TransactionDTO separadorNaDescricao = ficaComOPadrao(nubankConta, "01/02/2024,-12.34,abc,\"Mercado, centro\"");
+        assertThat(separadorNaDescricao.description()).isEqualTo("Mercado, centro");
+        assertThat(separadorNaDescricao.amount()).isEqualTo(new BigDecimal("-12.34"));
+
+        TransactionDTO aspasEscapadas = ficaComOPadrao(contaCorrente,
+                "02/03/2024;\"Pix; enviado\";\"Loja \"\"Central\"\"\";-45,90;10,00");
+        assertThat(aspasEscapadas.description()).isEqualTo("Pix; enviado - Loja \"Central\"");
+        assertThat(aspasEscapadas.amount()).isEqualTo(new BigDecimal("-45.90"));
+    }
+
+    @Test
+    void camposVaziosNoFimDaLinha() {
+        // Saldo vazio: como no split, o campo vazio no fim não conta e a linha é ignorada
+        assertThat(ficaComOPadrao(contaCorrente, "02/01/2024;Pix;Mercado;-10,00;")).isNull();
+        assertThat(ficaComOPadrao(contaCorrente, "02/01/2024;Pix;Mercado;-10,00;;;")).isNull();
+        // Campos vazios além das colunas do formato não atrapalham
+        assertThat(rapidoIgualAoPadrao(contaCorrente, "02/01/2024;Pix;Mercado;-10,00;5,00;;").amount())
+                .isEqualTo(new BigDecimal("-10.00"));
+        assertThat(rapidoIgualAoPadrao(nubankCartao, "2024-01-05,Padaria,7.50,,").description()).isEqualTo("Padaria");
+        // Campo vazio no meio é mantido
+        assertThat(rapidoIgualAoPadrao(contaCorrente, "02/01/2024;;Mercado;-10,00;5,00").description())
+                .isEqualTo(" - Mercado");
+        assertThat(rapidoIgualAoPadrao(contaCorrente, "02/01/2024;  ;Mercado;-10,00;5,00").description())
+                .isEqualTo(" - Mercado");
+        assertThat(rapidoIgualAoPadrao(nubankCartao, "2024-01-05, ,7.50").description()).isEmpty();
+        // Linha em branco ou com colunas faltando
+        assertThat(ficaComOPadrao(contaCorrente, "   ")).isNull();
+        assertThat(ficaComOPadrao(nubankCartao, "2024-01-05,Padaria")).isNull();
+    }
+
+    @Test
+    void linhasGeradasTemOMesmoResultadoNosDoisCaminhos() {
+        Random random = new Random(20240101L);
+        for (LayoutExtrato layout : List.of(contaCorrente, nubankConta, nubankCartao)) {
+            int rapidas = 0;
+            for (int i = 0; i < 20_000; i++) {
+                String linha = linhaGerada(random, layout.formato().nome());
+                TransactionDTO rapido = layout.decodificar(linha);
+                TransactionDTO padrao = service.parseLinhaPadrao(layout, linha);
+                if (rapido != null) {
+                    rapidas++;
+                    assertThat(rapido).as("%s: %s", layout.formato().nome(), linha).isEqualTo(padrao);
+                }
+                assertThat(service.parseLinha(layout, linha)).as("%s: %s", layout.formato().nome(), linha).isEqualTo(padrao);
+            }
+            // Boa parte das linhas geradas é comum e precisa passar pelo caminho rápido
+            assertThat(rapidas).as(layout.formato().nome()).isGreaterThan(5_000);
+        }
+    }
+
+    /**
+     * Linha no layout do formato: na maioria comum, com uma fração de valores, datas e campos
+     * incomuns, entre aspas, faltando ou vazios no fim.
+     */
+    private static String linhaGerada(Random random, String formato) {
+        char separador = formato.equals("conta-corrente") ? ';' : ',';
+        char decimal = formato.equals("conta-corrente") ? ',' : '.';
+        String data = dataGerada(random, formato.equals("nubank-cartao"));
+        String valor = valorGerado(random, decimal);
+        List<String> campos = new ArrayList<>(switch (formato) {
+            case "conta-corrente" -> List.of(data, textoGerado(random), textoGerado(random), valor, valorGerado(random, decimal));
+            case "nubank-conta" -> List.of(data, valor, Long.toHexString(random.nextLong()), textoGerado(random));
+            default -> List.of(data, textoGerado(random), valor);
+        });
+        int sorteio = random.nextInt(20);
+        if (sorteio == 0) campos.remove(campos.size() - 1);
+        else if (sorteio == 1) campos.set(campos.size() - 1, "");
+        else if (sorteio == 2) campos.add("");
+        else if (sorteio == 3) return "  ";
+
+        StringBuilder linha = new StringBuilder();
+        for (String campo : campos) {
+            if (!linha.isEmpty()) linha.append(separador);
+            boolean aspas = campo.indexOf(separador) >= 0 || campo.indexOf('"') >= 0 || random.nextInt(50) == 0;
+            linha.append(aspas ? '"' + campo.replace("\"", "\"\"") + '"' : campo);
+        }
+        return linha.toString();
+    }
+
+    private static String dataGerada(Random random, boolean iso) {
+        int ano = 2000 + random.nextInt(30);
+        int mes = 1 + random.nextInt(12);
+        // Dias até 31 em todos os meses: parte das datas não existe (31/04, 30/02...)
+        int dia = 1 + random.nextInt(random.nextInt(10) == 0 ? 31 : 28);
+        String data = iso ? String.format("%04d-%02d-%02d", ano, mes, dia) : String.format("%02d/%02d/%04d", dia, mes, ano);
+        return switch (random.nextInt(40)) {
+            case 0 -> " " + data + " ";
+            case 1 -> iso ? ano + "-" + mes + "-" + dia : dia + "/" + mes + "/" + ano;
+            case 2 -> "";
+            case 3 -> String.format(iso ? "%04d-13-%02d" : "%02d/13/%04d", iso ? ano : dia, iso ? dia : ano);
+            default -> data;
+        };
+    }
+
+    private static String valorGerado(Random random, char decimal) {
+        char milhar = decimal == ',' ? '.' : ',';
+        String sinal = switch (random.nextInt(5)) {
+            case 0, 1 -> "-";
+            case 2 -> "+";
+            default -> "";
+        };
+        long inteiro = switch (random.nextInt(10)) {
+            case 0 -> 0;
+            case 1 -> Math.abs(random.nextLong() % 1_000_000_000_000_000L);
+            default -> random.nextInt(100_000);
+        };
+        String parteInteira = Long.toString(inteiro);
+        if (random.nextInt(3) == 0) {
+            StringBuilder agrupado = new StringBuilder();
+            for (int i = 0; i < parteInteira.length(); i++) {
+                if (i > 0 && (parteInteira.length() - i) % 3 == 0) agrupado.append(milhar);
+                agrupado.append(parteInteira.charAt(i));
+            }
+            parteInteira = agrupado.toString();
+        }
+        StringBuilder casas = new StringBuilder();
+        for (int i = random.nextInt(4); i > 0; i--) casas.append(random.nextInt(10));
+        String valor = switch (random.nextInt(30)) {
+            case 0 -> decimal + casas.toString();
+            case 1 -> parteInteira + decimal;
+            case 2 -> parteInteira + decimal + casas + decimal + "1";
+            case 3 -> "R$ " + parteInteira;
+            case 4 -> "";
+            case 5 -> parteInteira + "12345678901234567890";
+            case 6 -> " " + parteInteira + "\t";
+            default -> casas.isEmpty() ? parteInteira : parteInteira + decimal + casas;
+        };
+        return sinal + valor;
+    }
+
+    private static String textoGerado(Random random) {
+        String[] palavras = {"Pix", "Mercado", "Padaria São João", "Tarifa", "Loja \"Central\"", "a;b", "Uber, viagem", ""};
+        String texto = palavras[random.nextInt(palavras.length)];
+        return random.nextInt(10) == 0 ? " " + texto + " " : texto;
+    }
+}